@@ -1,10 +1,15 @@
 // SPDX-License-Identifier: GPL-3.0-only
 package com.xpdustry.hexed;
 
+import com.xpdustry.distributor.api.event.EventSubscription;
 import com.xpdustry.hexed.generation.HexedMapContext;
 import com.xpdustry.hexed.generation.MapGenerator;
 import java.util.Objects;
+import java.util.function.Consumer;
 import mindustry.Vars;
+import mindustry.game.Team;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
 
 public interface HexedAPI {
 
@@ -14,7 +19,18 @@ public interface HexedAPI {
 
     HexedState getHexedState();
 
+    @Nullable Player getPlayer(final Team team);
+
     boolean isEnabled();
 
     boolean start(final MapGenerator<HexedMapContext> generator);
+
+    /**
+     * Subscribes a listener receiving the events of the given type on its own virtual thread, in posting order.
+     * Meant for listeners doing slow work such as I/O, they must not touch the game from there.
+     * <p>
+     * The hexed events are immutable, but the players they carry are live entities,
+     * only their identity should be read asynchronously.
+     */
+    <E> EventSubscription subscribeAsync(final Class<E> event, final Consumer<E> listener);
 }
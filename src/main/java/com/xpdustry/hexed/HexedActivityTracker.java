@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.util.Time;
+import com.xpdustry.hexed.model.Hex;
+
+/**
+ * Decides how often the capture progress of each hex is recomputed.
+ * Contested hexes are refreshed often, quiet ones hibernate until their long interval elapses
+ * or something happens in them.
+ */
+final class HexedActivityTracker {
+
+    static final float MIN_INTERVAL = 30F;
+    static final float CONTESTED_INTERVAL = 60F;
+    static final float DEFAULT_INTERVAL = 2 * 60F;
+    static final float QUIET_INTERVAL = 10 * 60F;
+
+    private final float[] last;
+    private final float[] next;
+    private final int[] events;
+
+    HexedActivityTracker(final int capacity) {
+        this.last = new float[capacity];
+        this.next = new float[capacity];
+        this.events = new int[capacity];
+        // Spread the first deadlines, the hexes would otherwise all be recomputed on the same ticks
+        for (int i = 0; i < capacity; i++) {
+            this.last[i] = Time.time - MIN_INTERVAL;
+            this.next[i] = Time.time + (i % (int) DEFAULT_INTERVAL);
+        }
+    }
+
+    boolean isDue(final Hex hex) {
+        return Time.time >= this.next[hex.getIdentifier()];
+    }
+
+    boolean isHibernating(final Hex hex) {
+        return this.next[hex.getIdentifier()] - this.last[hex.getIdentifier()] >= QUIET_INTERVAL;
+    }
+
+    void record(final Hex hex) {
+        this.events[hex.getIdentifier()]++;
+        this.wake(hex);
+    }
+
+    void wake(final Hex hex) {
+        final int index = hex.getIdentifier();
+        this.next[index] = Math.min(this.next[index], Math.max(Time.time, this.last[index] + MIN_INTERVAL));
+    }
+
+    void reschedule(final Hex hex, final boolean contested, final boolean visited) {
+        final int index = hex.getIdentifier();
+        final float interval;
+        if (contested || this.events[index] > 0) {
+            interval = CONTESTED_INTERVAL;
+        } else if (visited) {
+            interval = DEFAULT_INTERVAL;
+        } else {
+            interval = QUIET_INTERVAL;
+        }
+        this.events[index] = 0;
+        this.last[index] = Time.time;
+        this.next[index] = Time.time + interval;
+    }
+}
@@ -0,0 +1,41 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Players that have a team but are still waiting for their base, in join order.
+ */
+final class HexedAdmissionQueue {
+
+    private final Set<Player> players = new LinkedHashSet<>();
+
+    boolean add(final Player player) {
+        return this.players.add(player);
+    }
+
+    boolean contains(final Player player) {
+        return this.players.contains(player);
+    }
+
+    void remove(final Player player) {
+        this.players.remove(player);
+    }
+
+    @Nullable Player poll() {
+        final var iterator = this.players.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final var player = iterator.next();
+        iterator.remove();
+        return player;
+    }
+
+    void clear() {
+        this.players.clear();
+    }
+}
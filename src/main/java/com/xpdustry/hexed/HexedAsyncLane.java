@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import com.xpdustry.distributor.api.Distributor;
+import com.xpdustry.distributor.api.event.EventSubscription;
+import com.xpdustry.distributor.api.plugin.PluginListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events to listeners off the game thread. Each listener gets its own virtual thread,
+ * so it receives the events in the order they were posted and a slow listener does not delay the others.
+ * <p>
+ * The backlog of each listener is bounded, a stuck listener has its new events dropped and logged
+ * instead of filling the heap.
+ */
+final class HexedAsyncLane implements PluginListener {
+
+    static final int BACKLOG_CAPACITY = 1024;
+
+    private final AtomicInteger identifiers = new AtomicInteger();
+    private final List<ExecutorService> executors = new ArrayList<>();
+    private final HexedPluginReloaded hexed;
+
+    HexedAsyncLane(final HexedPluginReloaded hexed) {
+        this.hexed = hexed;
+    }
+
+    <E> EventSubscription subscribe(final Class<E> event, final Consumer<E> listener) {
+        final var name = "hexed-async-" + this.identifiers.getAndIncrement();
+        final var dropped = new AtomicLong();
+        final var executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(BACKLOG_CAPACITY),
+                Thread.ofVirtual().name(name).factory(),
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        // Unsubscribed while the event was being posted
+                        return;
+                    }
+                    // Logs the first drop, then every thousandth, so a stuck listener does not flood the logs
+                    final var count = dropped.getAndIncrement();
+                    if (count % 1000 == 0) {
+                        this.hexed.getLogger().warn("Backlog of {} is full, {} events dropped", name, count + 1);
+                    }
+                });
+        synchronized (this.executors) {
+            this.executors.add(executor);
+        }
+        final var subscription = Distributor.get()
+                .getEventBus()
+                .subscribe(event, this.hexed, value -> executor.execute(() -> this.deliver(listener, value)));
+        return () -> {
+            subscription.unsubscribe();
+            executor.shutdown();
+            synchronized (this.executors) {
+                this.executors.remove(executor);
+            }
+        };
+    }
+
+    @Override
+    public void onPluginExit() {
+        synchronized (this.executors) {
+            // Pending events are still delivered, new ones are rejected
+            for (final var executor : this.executors) {
+                executor.shutdown();
+            }
+            this.executors.clear();
+        }
+    }
+
+    private <E> void deliver(final Consumer<E> listener, final E event) {
+        try {
+            listener.accept(event);
+        } catch (final Exception e) {
+            this.hexed.getLogger().error("An asynchronous listener failed to handle {}", event, e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.struct.IntSeq;
+import arc.struct.IntSet;
+import com.xpdustry.distributor.api.annotation.EventHandler;
+import com.xpdustry.distributor.api.plugin.PluginListener;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import mindustry.Vars;
+import mindustry.game.EventType;
+import mindustry.game.Team;
+import mindustry.gen.Call;
+import mindustry.gen.Groups;
+import mindustry.gen.Player;
+
+/**
+ * An opt-in binary protocol for client mods, so they can render the hexes themselves.
+ * <p>
+ * A client subscribes by sending a {@value #SUBSCRIBE_PACKET} packet. It then receives a full state in a
+ * {@value #STATE_PACKET} packet, followed by a delta containing only the changed hexes after each capture cycle
+ * that changed something. Subscribed players no longer receive the HUD text.
+ * <p>
+ * Packet layout, big endian:
+ * <pre>
+ * byte    kind (0 = full, 1 = delta)
+ * long    sequence, incremented by each delta
+ * short   hex count
+ * repeated:
+ *   short   hex identifier
+ *   short   controller team id, -1 if none
+ *   ubyte   team count
+ *   repeated:
+ *     ubyte   team id
+ *     ubyte   capture progress, in percents
+ * </pre>
+ */
+final class HexedClientProtocol implements PluginListener {
+
+    static final String SUBSCRIBE_PACKET = "hexed-subscribe";
+    static final String STATE_PACKET = "hexed-state";
+
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+    private static final int TEAMS = Team.all.length;
+
+    private final IntSet subscribers = new IntSet();
+    private final IntSeq changed = new IntSeq();
+    private final IntSeq all = new IntSeq();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream output = new DataOutputStream(this.buffer);
+    private final HexedPluginReloaded hexed;
+    // The state last sent to the subscribers, indexed by hex identifier, and by team id for the progress.
+    // Only kept while there are subscribers, 0 when there is none.
+    private int generation = 0;
+    private long sequence = 0L;
+    private short[] controllers = new short[0];
+    private byte[] progress = new byte[0];
+
+    HexedClientProtocol(final HexedPluginReloaded hexed) {
+        this.hexed = hexed;
+    }
+
+    @Override
+    public void onPluginInit() {
+        Vars.netServer.addPacketHandler(SUBSCRIBE_PACKET, (player, content) -> this.subscribe(player));
+    }
+
+    @EventHandler
+    public void onPlayerLeave(final EventType.PlayerLeave event) {
+        this.subscribers.remove(event.player.id);
+    }
+
+    boolean isSubscribed(final Player player) {
+        return this.subscribers.contains(player.id);
+    }
+
+    /**
+     * Sends the hexes updated by the last capture cycle to the subscribers, if their visible state changed.
+     */
+    void publish(final HexedStateImpl state, final IntSeq updated) {
+        if (this.subscribers.isEmpty()) {
+            // Nobody to diff for, the first subscriber rebuilds the baseline
+            this.generation = 0;
+            return;
+        }
+        if (this.generation != state.getGeneration()) {
+            // A new game started, everyone gets the full state again
+            this.load(state);
+            this.broadcast(this.encode(FULL, this.all));
+            return;
+        }
+
+        this.changed.clear();
+        for (int i = 0; i < updated.size; i++) {
+            if (this.update(state, updated.get(i))) {
+                this.changed.add(updated.get(i));
+            }
+        }
+        if (!this.changed.isEmpty()) {
+            this.sequence++;
+            this.broadcast(this.encode(DELTA, this.changed));
+        }
+    }
+
+    private void subscribe(final Player player) {
+        if (!this.hexed.isEnabled() || !this.subscribers.add(player.id)) {
+            return;
+        }
+        final var state = this.hexed.getHexedState0();
+        if (this.generation != state.getGeneration()) {
+            this.load(state);
+        }
+        final var packet = this.encode(FULL, this.all);
+        Call.clientBinaryPacketReliable(player.con(), STATE_PACKET, packet);
+        this.hexed.getNetStats().record(HexedNetStats.BINARY_STATE, player, this.sizeOf(packet));
+    }
+
+    private void load(final HexedStateImpl state) {
+        int size = 0;
+        for (final var hex : state.getHexes()) {
+            size = Math.max(size, hex.getIdentifier() + 1);
+        }
+        this.generation = state.getGeneration();
+        this.sequence = 0L;
+        this.controllers = new short[size];
+        this.progress = new byte[size * TEAMS];
+        this.all.clear();
+        for (final var hex : state.getHexes()) {
+            this.all.add(hex.getIdentifier());
+            this.update(state, hex.getIdentifier());
+        }
+    }
+
+    /**
+     * Copies the visible state of a hex, with the progress quantized to whole percents.
+     *
+     * @return whether it differs from the copy that was last sent
+     */
+    private boolean update(final HexedStateImpl state, final int identifier) {
+        final var hex = state.getHexByIdentifier(identifier);
+        final var controller = state.getController(hex);
+        final short id = controller == null ? -1 : (short) controller.id;
+        boolean changed = this.controllers[identifier] != id;
+        this.controllers[identifier] = id;
+        final int row = identifier * TEAMS;
+        for (final var team : Team.all) {
+            final var progress = (byte) Math.min(Math.max(Math.round(state.getProgress(hex, team)), 0), 100);
+            if (this.progress[row + team.id] != progress) {
+                this.progress[row + team.id] = progress;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private byte[] encode(final byte kind, final IntSeq identifiers) {
+        this.buffer.reset();
+        try {
+            this.output.writeByte(kind);
+            this.output.writeLong(this.sequence);
+            this.output.writeShort(identifiers.size);
+            for (int i = 0; i < identifiers.size; i++) {
+                final int identifier = identifiers.get(i);
+                final int row = identifier * TEAMS;
+                this.output.writeShort(identifier);
+                this.output.writeShort(this.controllers[identifier]);
+                int count = 0;
+                for (int j = 0; j < TEAMS; j++) {
+                    if (this.progress[row + j] != 0) {
+                        count++;
+                    }
+                }
+                this.output.writeByte(count);
+                for (int j = 0; j < TEAMS; j++) {
+                    if (this.progress[row + j] != 0) {
+                        this.output.writeByte(j);
+                        this.output.writeByte(this.progress[row + j]);
+                    }
+                }
+            }
+            this.output.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this.buffer.toByteArray();
+    }
+
+    private int sizeOf(final byte[] packet) {
+        return HexedNetStats.sizeOf(STATE_PACKET) + Integer.BYTES + packet.length;
+    }
+
+    private void broadcast(final byte[] packet) {
+        for (final var player : Groups.player) {
+            if (this.subscribers.contains(player.id)) {
+                Call.clientBinaryPacketReliable(player.con(), STATE_PACKET, packet);
+                this.hexed.getNetStats().record(HexedNetStats.BINARY_STATE, player, this.sizeOf(packet));
+            }
+        }
+    }
+}
@@ -5,7 +5,6 @@ import arc.util.CommandHandler;
 import com.xpdustry.distributor.api.Distributor;
 import com.xpdustry.distributor.api.command.CommandSender;
 import com.xpdustry.distributor.api.command.cloud.MindustryCommandManager;
-import com.xpdustry.distributor.api.plugin.MindustryPlugin;
 import com.xpdustry.distributor.api.plugin.PluginListener;
 import com.xpdustry.distributor.api.service.ServiceProvider;
 import com.xpdustry.hexed.event.HexPlayerJoinEvent;
@@ -30,10 +29,10 @@ import org.jspecify.annotations.Nullable;
 @Command("hexed")
 final class HexedCommands implements PluginListener {
 
-    private final MindustryPlugin plugin;
+    private final HexedPluginReloaded hexed;
 
-    public HexedCommands(final MindustryPlugin plugin) {
-        this.plugin = plugin;
+    public HexedCommands(final HexedPluginReloaded hexed) {
+        this.hexed = hexed;
     }
 
     @Command("start [generator]")
@@ -65,7 +64,14 @@ final class HexedCommands implements PluginListener {
     @Command("leaderboard")
     @CommandDescription("Display the leaderboard.")
     public void onLeaderboardCommand(final CommandSender sender) {
-        sender.reply(HexedUtils.createLeaderboard(HexedAPI.get().getHexedState()));
+        sender.reply(this.hexed.getHexedState0().getLeaderboard0().render(this.hexed.getPlayerIndex()));
+    }
+
+    @Command("perf net")
+    @CommandDescription("Display the network traffic caused by hexed.")
+    @Permission("com.xpdustry.hexed.perf")
+    public void onPerfNetCommand(final CommandSender sender) {
+        sender.reply(this.hexed.getNetStats().render());
     }
 
     @Command("list [player]")
@@ -146,7 +152,7 @@ final class HexedCommands implements PluginListener {
 
     private void onPluginSharedCommandsRegistration(final CommandHandler handler) {
         final var manager = new MindustryCommandManager<>(
-                this.plugin, handler, ExecutionCoordinator.simpleCoordinator(), SenderMapper.identity());
+                this.hexed, handler, ExecutionCoordinator.simpleCoordinator(), SenderMapper.identity());
         final var annotations = new AnnotationParser<>(manager, CommandSender.class);
         annotations.parse(this);
     }
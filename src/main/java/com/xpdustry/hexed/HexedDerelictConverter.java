@@ -0,0 +1,114 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.struct.IntSeq;
+import arc.struct.Seq;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Queue;
+import mindustry.game.Team;
+import mindustry.gen.Building;
+import mindustry.gen.Call;
+import mindustry.gen.Unit;
+import mindustry.world.blocks.storage.CoreBlock;
+
+/**
+ * Hands the buildings of departed teams to derelict in bounded batches per tick, instead of all at once like
+ * {@link mindustry.game.Teams.TeamData#destroyToDerelict()}.
+ * The team and the hexes it controlled stay out of the pools until its conversion is over.
+ */
+final class HexedDerelictConverter {
+
+    private final Queue<Job> jobs = new ArrayDeque<>();
+    private final IntSeq positions = new IntSeq();
+    private final HexedNetStats stats;
+
+    HexedDerelictConverter(final HexedNetStats stats) {
+        this.stats = stats;
+    }
+
+    boolean isConverting(final Team team) {
+        for (final var job : this.jobs) {
+            if (job.team.equals(team)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void schedule(final HexedStateImpl state, final Team team) {
+        final var data = team.data();
+        data.plans.clear();
+        final var job = new Job(
+                state, team, data.buildings.copy(), data.units.copy(), state.getControlledIdentifiers(team));
+        state.lock(team, job.hexes);
+        this.jobs.add(job);
+    }
+
+    /**
+     * Drops the jobs of previous games, their buildings and units belong to a world that no longer exists.
+     */
+    void clear(final HexedStateImpl state) {
+        this.jobs.removeIf(job -> job.state != state);
+    }
+
+    void update(final int budget) {
+        int remaining = budget;
+        while (remaining > 0 && !this.jobs.isEmpty()) {
+            final var job = this.jobs.peek();
+            while (remaining > 0 && job.building < job.buildings.size) {
+                final var building = job.buildings.get(job.building++);
+                remaining--;
+                if (!building.isValid() || !building.team.equals(job.team)) {
+                    continue;
+                }
+                if (building.block instanceof CoreBlock) {
+                    building.kill();
+                } else {
+                    this.positions.add(building.pos());
+                }
+            }
+            while (remaining > 0 && job.unit < job.units.size) {
+                final var unit = job.units.get(job.unit++);
+                remaining--;
+                if (unit.isValid() && unit.team.equals(job.team)) {
+                    unit.kill();
+                }
+            }
+            if (!this.positions.isEmpty()) {
+                final var positions = this.positions.toArray();
+                Call.setTeams(positions, Team.derelict);
+                this.stats.broadcast(HexedNetStats.SET_TEAMS, HexedNetStats.sizeOf(positions) + 1);
+                this.positions.clear();
+            }
+            if (job.building >= job.buildings.size && job.unit >= job.units.size) {
+                this.jobs.remove();
+                job.state.unlock(job.team, job.hexes, 10);
+            }
+        }
+    }
+
+    private static final class Job {
+
+        private final HexedStateImpl state;
+        private final Team team;
+        private final Seq<Building> buildings;
+        private final Seq<Unit> units;
+        private final BitSet hexes;
+        private int building = 0;
+        private int unit = 0;
+
+        private Job(
+                final HexedStateImpl state,
+                final Team team,
+                final Seq<Building> buildings,
+                final Seq<Unit> units,
+                final BitSet hexes) {
+            this.state = state;
+            this.team = team;
+            this.buildings = buildings;
+            this.units = units;
+            this.hexes = hexes;
+        }
+    }
+}
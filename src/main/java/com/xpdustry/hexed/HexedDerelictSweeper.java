@@ -0,0 +1,86 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.struct.IntSeq;
+import arc.struct.Seq;
+import com.xpdustry.hexed.model.Hex;
+import mindustry.content.Blocks;
+import mindustry.game.Team;
+import mindustry.gen.Building;
+import mindustry.gen.Call;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Removes the derelict buildings left in abandoned hexes, a bounded number per tick.
+ * A hex is only swept while it has no controller and has been hibernating, so no one is around to see it.
+ */
+final class HexedDerelictSweeper {
+
+    private final HexedPluginReloaded hexed;
+    private final Seq<Building> found = new Seq<>();
+    private final IntSeq positions = new IntSeq();
+    private int cursor = 0;
+    private @Nullable Hex target = null;
+
+    HexedDerelictSweeper(final HexedPluginReloaded hexed) {
+        this.hexed = hexed;
+    }
+
+    void update(final int budget) {
+        if (budget <= 0) {
+            return;
+        }
+        final var state = this.hexed.getHexedState0();
+        if (this.target != null && !this.isAbandoned(state, this.target)) {
+            this.target = null;
+        }
+        if (this.target == null) {
+            // Looks at a single hex per tick to keep the search itself cheap
+            final var hexes = state.getHexes();
+            if (hexes.isEmpty()) {
+                return;
+            }
+            this.cursor = (this.cursor + 1) % hexes.size();
+            final var candidate = hexes.get(this.cursor);
+            if (!this.isAbandoned(state, candidate)) {
+                return;
+            }
+            this.target = candidate;
+        }
+
+        final var hex = this.target;
+        final var tree = Team.derelict.data().buildingTree;
+        if (tree == null) {
+            this.target = null;
+            return;
+        }
+        tree.intersect(
+                hex.getX() - hex.getRadius(),
+                hex.getY() - hex.getRadius(),
+                hex.getDiameter(),
+                hex.getDiameter(),
+                this.found);
+        for (int i = 0; i < this.found.size && this.positions.size < budget; i++) {
+            final var building = this.found.get(i);
+            if (hex.contains(building.tileX(), building.tileY())) {
+                this.positions.add(building.pos());
+            }
+        }
+        this.found.clear();
+
+        if (this.positions.size < budget) {
+            this.target = null;
+        }
+        if (!this.positions.isEmpty()) {
+            final var positions = this.positions.toArray();
+            Call.setTileBlocks(Blocks.air, Team.derelict, positions);
+            // Block id and team
+            this.hexed.getNetStats().broadcast(HexedNetStats.SET_TILE_BLOCKS, HexedNetStats.sizeOf(positions) + 3);
+            this.positions.clear();
+        }
+    }
+
+    private boolean isAbandoned(final HexedStateImpl state, final Hex hex) {
+        return state.getController(hex) == null && state.getActivityTracker().isHibernating(hex);
+    }
+}
@@ -0,0 +1,37 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import com.xpdustry.hexed.generation.HexedMapContext;
+import mindustry.Vars;
+import mindustry.game.Team;
+
+/**
+ * Per-team unit and building caps, read from the rules.
+ * The counts come from the team data. Mindustry rebuilds the unit lists once per frame,
+ * so they lag behind the units created or killed during the current frame.
+ */
+final class HexedEntityBudget {
+
+    private HexedEntityBudget() {}
+
+    static int getUnitCap() {
+        return Vars.state.rules.tags.getInt(HexedMapContext.UNIT_CAP_TAG, 0);
+    }
+
+    static int getBuildingCap() {
+        return Vars.state.rules.tags.getInt(HexedMapContext.BUILDING_CAP_TAG, 0);
+    }
+
+    static int getUnitCount(final Team team) {
+        return team.data().units.size;
+    }
+
+    static int getBuildingCount(final Team team) {
+        return team.data().buildings.size;
+    }
+
+    static boolean isAtBuildingCap(final Team team) {
+        final var cap = getBuildingCap();
+        return cap > 0 && getBuildingCount(team) >= cap;
+    }
+}
@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import com.xpdustry.hexed.model.Hex;
+import mindustry.game.Team;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Writes the HUD text of a player into a reused buffer.
+ * The header of each hex is cached until its controller, or the player of that controller, changes.
+ */
+final class HexedHudComposer {
+
+    private final HexedState state;
+    private final HexedPlayerIndex players;
+    private final @Nullable String[] headers;
+    private final int[] controllers;
+    private final @Nullable Player[] owners;
+
+    HexedHudComposer(final HexedState state, final HexedPlayerIndex players) {
+        this.state = state;
+        this.players = players;
+        int size = 0;
+        for (final var hex : state.getHexes()) {
+            size = Math.max(size, hex.getIdentifier() + 1);
+        }
+        this.headers = new String[size];
+        this.controllers = new int[size];
+        this.owners = new Player[size];
+    }
+
+    boolean isFor(final HexedState state) {
+        return this.state == state;
+    }
+
+    void compose(
+            final StringBuilder builder,
+            final Hex hex,
+            final @Nullable Team team,
+            final int progress,
+            final int units,
+            final int unitCap,
+            final int buildings,
+            final int buildingCap) {
+        builder.setLength(0);
+        builder.append(this.getHeader(hex, team));
+        if (progress > 0) {
+            // progress is in tenths of percent
+            builder.append("\n[lightgray]Capture progress: [accent]")
+                    .append(progress / 10)
+                    .append('.')
+                    .append(progress % 10)
+                    .append('%');
+        }
+        if (unitCap > 0) {
+            builder.append("\n[lightgray]Units: [white]").append(units).append('/').append(unitCap);
+        }
+        if (buildingCap > 0) {
+            builder.append("\n[lightgray]Buildings: [white]").append(buildings).append('/').append(buildingCap);
+        }
+    }
+
+    private String getHeader(final Hex hex, final @Nullable Team team) {
+        final int index = hex.getIdentifier();
+        final int controller = team == null ? -1 : team.id;
+        final var owner = team == null ? null : this.players.get(team);
+        final var cached = this.headers[index];
+        if (cached != null && this.controllers[index] == controller && this.owners[index] == owner) {
+            return cached;
+        }
+        final var builder = new StringBuilder();
+        builder.append("[white]Hex #").append(hex.getIdentifier());
+        if (team != null) {
+            builder.append("\n[#").append(team.color).append("]Controlled");
+            if (owner == null) {
+                builder.append(" by [white]Unknown");
+            } else {
+                builder.append(" by ").append(owner.plainName());
+            }
+        } else {
+            builder.append("\n[lightgray][[empty]");
+        }
+        final var header = builder.toString();
+        this.headers[index] = header;
+        this.controllers[index] = controller;
+        this.owners[index] = owner;
+        return header;
+    }
+}
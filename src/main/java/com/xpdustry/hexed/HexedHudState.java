@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.util.Time;
+import com.xpdustry.hexed.model.Hex;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * What was last sent to the HUD of a player, so unchanged content is not sent again until the keepalive elapses.
+ */
+final class HexedHudState {
+
+    static final int HIDDEN = -1;
+    static final float ACTIVE_INTERVAL = Time.toSeconds / 10;
+    static final float DEFAULT_INTERVAL = Time.toSeconds / 5;
+    static final float IDLE_INTERVAL = Time.toSeconds / 2;
+    private static final float KEEPALIVE = 5F * Time.toSeconds;
+
+    private boolean valid = false;
+    private float sent = 0F;
+    private int hex = HIDDEN;
+    private int controller = 0;
+    private int progress = 0;
+    private int units = 0;
+    private int buildings = 0;
+    private final StringBuilder builder = new StringBuilder(128);
+    private @Nullable HexedStateImpl locatedState = null;
+    private @Nullable Hex located = null;
+    private float refresh;
+
+    HexedHudState(final int id) {
+        // Spreads the players evenly over the interval, using the golden ratio to avoid clustering of sequential ids
+        final float phase = (id * 0.618034F) % 1F;
+        this.refresh = Time.time + phase * DEFAULT_INTERVAL;
+    }
+
+    boolean isRefreshDue() {
+        return Time.time >= this.refresh;
+    }
+
+    void scheduleRefresh(final float interval) {
+        this.refresh = Math.max(this.refresh + interval, Time.time);
+    }
+
+    /**
+     * Returns the hex containing the given tile, checking the last one first since players rarely change hex.
+     * The cached hex is only reused within the same game.
+     */
+    @Nullable Hex locate(final HexedStateImpl state, final int x, final int y) {
+        final var located = this.located;
+        if (located != null && this.locatedState == state && located.contains(x, y)) {
+            return located;
+        }
+        this.locatedState = state;
+        return this.located = state.locate(x, y);
+    }
+
+    StringBuilder getBuilder() {
+        return this.builder;
+    }
+
+    /**
+     * Records the visible content and returns whether it has to be sent.
+     */
+    boolean update(final int hex, final int controller, final int progress, final int units, final int buildings) {
+        if (this.valid
+                && Time.time - this.sent < KEEPALIVE
+                && this.hex == hex
+                && this.controller == controller
+                && this.progress == progress
+                && this.units == units
+                && this.buildings == buildings) {
+            return false;
+        }
+        this.valid = true;
+        this.sent = Time.time;
+        this.hex = hex;
+        this.controller = controller;
+        this.progress = progress;
+        this.units = units;
+        this.buildings = buildings;
+        return true;
+    }
+
+    void invalidate() {
+        this.valid = false;
+    }
+}
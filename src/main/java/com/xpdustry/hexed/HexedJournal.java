@@ -0,0 +1,258 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import com.xpdustry.distributor.api.annotation.EventHandler;
+import com.xpdustry.distributor.api.plugin.PluginListener;
+import com.xpdustry.hexed.event.HexPlayerQuitEvent;
+import com.xpdustry.hexed.event.HexStateDeltaEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import mindustry.Vars;
+import mindustry.game.Team;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Appends the ownership changes, progress changes, joins and quits of a match to a memory-mapped file,
+ * one file per match. Records have a fixed size, see {@link HexedJournalReader} for the layout.
+ * <p>
+ * Writing a record only touches the mapped memory. The mapping is sized for a whole match up front, the file
+ * staying sparse until written. If a match still outgrows it, a twice larger mapping is prepared in the background
+ * once three quarters are used, the game thread only swaps it in. The file is truncated to its content when closed.
+ */
+final class HexedJournal implements PluginListener {
+
+    static final int MAGIC = 0x48584A31; // HXJ1
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 24;
+    static final int COUNT_OFFSET = 16;
+    static final int RECORD_SIZE = 32;
+    static final String EXTENSION = ".hxj";
+
+    // 32 MiB of address space, far more than a typical match writes
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int RETAINED_FILES = 20;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final HexedPluginReloaded hexed;
+    private @Nullable FileChannel channel = null;
+    private @Nullable MappedByteBuffer buffer = null;
+    private @Nullable CompletableFuture<MappedByteBuffer> growing = null;
+    private int capacity = 0;
+    private int count = 0;
+    private int dropped = 0;
+
+    HexedJournal(final HexedPluginReloaded hexed) {
+        this.hexed = hexed;
+    }
+
+    /**
+     * Closes the journal of the previous match and starts a new one.
+     */
+    void rotate() {
+        this.close();
+        try {
+            final var directory = this.hexed.getDirectory().resolve("journal");
+            Files.createDirectories(directory);
+            this.prune(directory);
+            final var file = directory.resolve("match-" + LocalDateTime.now().format(FORMATTER) + EXTENSION);
+            final var channel = FileChannel.open(
+                    file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel = channel;
+            this.count = 0;
+            this.dropped = 0;
+            this.buffer = this.map(channel, INITIAL_CAPACITY);
+            this.capacity = INITIAL_CAPACITY;
+            final var buffer = this.getBuffer();
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) RECORD_SIZE);
+            buffer.putLong(8, System.currentTimeMillis());
+            buffer.putInt(COUNT_OFFSET, 0);
+        } catch (final IOException e) {
+            this.hexed.getLogger().error("Failed to open the hexed journal, this match will not be recorded.", e);
+            this.close();
+        }
+    }
+
+    @EventHandler
+    public void onHexStateDelta(final HexStateDeltaEvent event) {
+        for (int i = 0; i < event.getChangeCount(); i++) {
+            final var hex = event.getChangeHex(i);
+            final var current = event.getCurrentController(i);
+            final var progress = current == null ? 0F : this.hexed.getHexedState().getProgress(hex, current) / 100F;
+            this.write(
+                    HexedJournalReader.Type.CHANGE,
+                    hex.getIdentifier(),
+                    event.getPreviousController(i),
+                    current,
+                    progress,
+                    null);
+        }
+        for (int i = 0; i < event.getProgressCount(); i++) {
+            this.write(
+                    HexedJournalReader.Type.PROGRESS,
+                    event.getProgressHex(i).getIdentifier(),
+                    event.getProgressTeam(i),
+                    event.getProgressTeam(i),
+                    event.getCurrentProgress(i),
+                    null);
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuit(final HexPlayerQuitEvent event) {
+        if (this.hexed.isEnabled()) {
+            this.write(HexedJournalReader.Type.QUIT, -1, event.team(), null, 0F, event.player());
+        }
+    }
+
+    void recordJoin(final Player player) {
+        this.write(HexedJournalReader.Type.JOIN, -1, null, player.team(), 0F, player);
+    }
+
+    @Override
+    public void onPluginExit() {
+        this.close();
+    }
+
+    private void write(
+            final HexedJournalReader.Type type,
+            final int hex,
+            final @Nullable Team previous,
+            final @Nullable Team current,
+            final float progress,
+            final @Nullable Player player) {
+        if (this.buffer == null) {
+            return;
+        }
+        this.grow();
+        if (this.count == this.capacity) {
+            // The larger mapping is not ready yet, better lose a record than block the game thread
+            if (this.dropped++ == 0) {
+                this.hexed.getLogger().warn("The hexed journal is full, records are dropped until it has grown.");
+            }
+            return;
+        }
+        final var buffer = this.getBuffer();
+        final int offset = HEADER_SIZE + (this.count * RECORD_SIZE);
+        buffer.putLong(offset, (long) Vars.state.tick);
+        buffer.put(offset + 8, type.getCode());
+        buffer.putShort(offset + 10, (short) hex);
+        buffer.putShort(offset + 12, previous == null ? -1 : (short) previous.id);
+        buffer.putShort(offset + 14, current == null ? -1 : (short) current.id);
+        buffer.putFloat(offset + 16, progress);
+        buffer.putInt(offset + 20, player == null ? -1 : player.id);
+        buffer.putLong(offset + 24, player == null ? 0L : uuidOf(player));
+        // The count is written last, so a reader never sees a partial record
+        buffer.putInt(COUNT_OFFSET, ++this.count);
+    }
+
+    /**
+     * Prepares a larger mapping off the game thread when the current one is getting full, and swaps it in when ready.
+     */
+    private void grow() {
+        final var channel = this.channel;
+        final var growing = this.growing;
+        if (growing == null) {
+            if (channel != null && this.count >= this.capacity - (this.capacity / 4)) {
+                final var capacity = this.capacity * 2;
+                this.growing = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return this.map(channel, capacity);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return;
+        }
+        if (!growing.isDone()) {
+            return;
+        }
+        this.growing = null;
+        try {
+            final var buffer = growing.join();
+            // Both mappings share the file, the old one is released by the garbage collector
+            this.buffer = buffer;
+            this.capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+            this.dropped = 0;
+        } catch (final CompletionException e) {
+            this.hexed.getLogger().error("Failed to grow the hexed journal, the rest of this match is lost.", e);
+            this.close();
+        }
+    }
+
+    private MappedByteBuffer map(final FileChannel channel, final int capacity) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + ((long) capacity * RECORD_SIZE));
+    }
+
+    /**
+     * Returns the persistent uuid of a player as a long, it is the base64 encoding of 8 bytes.
+     */
+    private static long uuidOf(final Player player) {
+        try {
+            final var bytes = Base64.getDecoder().decode(player.uuid());
+            return bytes.length >= Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0L;
+        } catch (final IllegalArgumentException e) {
+            return 0L;
+        }
+    }
+
+    private MappedByteBuffer getBuffer() {
+        final var buffer = this.buffer;
+        if (buffer == null) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        return buffer;
+    }
+
+    private void close() {
+        final var buffer = this.buffer;
+        if (buffer != null) {
+            buffer.force();
+        }
+        this.buffer = null;
+        this.growing = null;
+        final var channel = this.channel;
+        if (channel != null) {
+            try {
+                // Drops the unused part of the preallocated mapping
+                channel.truncate(HEADER_SIZE + ((long) this.count * RECORD_SIZE));
+            } catch (final IOException e) {
+                this.hexed.getLogger().warn("Failed to truncate the hexed journal.", e);
+            }
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                this.hexed.getLogger().error("Failed to close the hexed journal.", e);
+            }
+        }
+        this.channel = null;
+    }
+
+    private void prune(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            final var journals = files.filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+            // Leaves room for the new journal
+            for (int i = RETAINED_FILES - 1; i < journals.size(); i++) {
+                Files.deleteIfExists(journals.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Base64;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reads a journal written during a hexed match, for offline analysis.
+ * <p>
+ * The file starts with a header followed by fixed size records, big endian:
+ * <pre>
+ * header, 24 bytes:
+ *   int     magic, "HXJ1"
+ *   short   version
+ *   short   record size
+ *   long    match start, epoch milliseconds
+ *   int     record count
+ *   int     reserved
+ * record, 32 bytes:
+ *   long    game tick
+ *   byte    type, see {@link Type}
+ *   byte    reserved
+ *   short   hex identifier, -1 for joins and quits
+ *   short   previous team id, -1 if none
+ *   short   current team id, -1 if none
+ *   float   capture progress of the current team, 1 meaning captured
+ *   int     player entity id, -1 for hex records
+ *   long    player uuid, the 8 bytes behind the base64 uuid of Mindustry, 0 for hex records
+ * </pre>
+ */
+public final class HexedJournalReader {
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final Instant start;
+
+    private HexedJournalReader(final ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HexedJournal.HEADER_SIZE || buffer.getInt(0) != HexedJournal.MAGIC) {
+            throw new IOException("Not a hexed journal");
+        }
+        if (buffer.getShort(4) != HexedJournal.VERSION || buffer.getShort(6) != HexedJournal.RECORD_SIZE) {
+            throw new IOException("Unsupported hexed journal version " + buffer.getShort(4));
+        }
+        this.buffer = buffer;
+        this.start = Instant.ofEpochMilli(buffer.getLong(8));
+        this.count = Math.min(
+                buffer.getInt(HexedJournal.COUNT_OFFSET),
+                (buffer.limit() - HexedJournal.HEADER_SIZE) / HexedJournal.RECORD_SIZE);
+    }
+
+    public static HexedJournalReader open(final Path path) throws IOException {
+        try (final var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new HexedJournalReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Instant getStart() {
+        return this.start;
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    public Entry get(final int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        final int offset = HexedJournal.HEADER_SIZE + (index * HexedJournal.RECORD_SIZE);
+        final var code = this.buffer.get(offset + 8);
+        final var type = Type.fromCode(code);
+        if (type == null) {
+            throw new IllegalStateException("Unknown hexed journal record type " + code + " at offset " + offset);
+        }
+        return new Entry(
+                this.buffer.getLong(offset),
+                type,
+                this.buffer.getShort(offset + 10),
+                this.buffer.getShort(offset + 12),
+                this.buffer.getShort(offset + 14),
+                this.buffer.getFloat(offset + 16),
+                this.buffer.getInt(offset + 20),
+                this.buffer.getLong(offset + 24));
+    }
+
+    /**
+     * Returns a view of the entries, decoded lazily.
+     */
+    public List<Entry> getEntries() {
+        return new AbstractList<>() {
+            @Override
+            public Entry get(final int index) {
+                return HexedJournalReader.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return HexedJournalReader.this.count;
+            }
+        };
+    }
+
+    public enum Type {
+        CHANGE(0),
+        PROGRESS(1),
+        JOIN(2),
+        QUIT(3);
+
+        private final byte code;
+
+        Type(final int code) {
+            this.code = (byte) code;
+        }
+
+        static @Nullable Type fromCode(final byte code) {
+            return switch (code) {
+                case 0 -> CHANGE;
+                case 1 -> PROGRESS;
+                case 2 -> JOIN;
+                case 3 -> QUIT;
+                default -> null;
+            };
+        }
+
+        /** Returns the code of the type as written in the journal. */
+        byte getCode() {
+            return this.code;
+        }
+    }
+
+    public record Entry(
+            long tick, Type type, int hex, int previous, int current, float progress, int player, long uuid) {
+
+        /**
+         * Returns the uuid of the player in the base64 form used by Mindustry, or {@code null} for hex records.
+         */
+        public @Nullable String getPlayerUuid() {
+            if (this.uuid == 0L) {
+                return null;
+            }
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(this.uuid).array());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import java.util.Arrays;
+import mindustry.game.Team;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Team ranking kept sorted as hex ownership changes, with the rendered message cached until the next change.
+ */
+final class HexedLeaderboard {
+
+    private static final int LIMIT = 10;
+
+    private final int[] counts = new int[Team.all.length];
+    private final int[] ranking = new int[Team.all.length];
+    private final int[] positions = new int[Team.all.length];
+    private int size = 0;
+    private @Nullable String rendered = null;
+
+    HexedLeaderboard() {
+        Arrays.fill(this.positions, -1);
+    }
+
+    void update(final Team team, final int count) {
+        if (team.equals(Team.derelict) || this.counts[team.id] == count) {
+            return;
+        }
+        this.counts[team.id] = count;
+        int position = this.positions[team.id];
+        if (position == -1) {
+            if (count == 0) {
+                return;
+            }
+            position = this.size++;
+            this.ranking[position] = team.id;
+        }
+        final int previous = position;
+        if (count == 0) {
+            System.arraycopy(this.ranking, position + 1, this.ranking, position, this.size - position - 1);
+            this.size--;
+            this.positions[team.id] = -1;
+            for (int i = position; i < this.size; i++) {
+                this.positions[this.ranking[i]] = i;
+            }
+        } else {
+            // Counts only move by one at a time, so a team rarely travels more than a few slots
+            while (position > 0 && this.counts[this.ranking[position - 1]] < count) {
+                this.swap(position, position - 1);
+                position--;
+            }
+            while (position < this.size - 1 && this.counts[this.ranking[position + 1]] > count) {
+                this.swap(position, position + 1);
+                position++;
+            }
+            this.positions[team.id] = position;
+        }
+        if (previous < LIMIT || position < LIMIT) {
+            this.invalidate();
+        }
+    }
+
+    void invalidate() {
+        this.rendered = null;
+    }
+
+    String render(final HexedPlayerIndex players) {
+        if (this.rendered == null) {
+            this.rendered = this.render0(players);
+        }
+        return this.rendered;
+    }
+
+    private String render0(final HexedPlayerIndex players) {
+        final var builder = new StringBuilder();
+        builder.append("[accent]Leaderboard:");
+        if (this.size == 0) {
+            // Should not be possible though
+            builder.append("\n[orange]No one has captured any hexes yet!");
+            return builder.toString();
+        }
+        for (int i = 0; i < Math.min(this.size, LIMIT); i++) {
+            final var team = Team.all[this.ranking[i]];
+            final var player = players.get(team);
+            builder.append("\n[yellow]")
+                    .append(i + 1)
+                    .append(".[white] ")
+                    .append(player == null ? "Unknown" : player.coloredName())
+                    .append(" [orange]>[white] ")
+                    .append(this.counts[team.id])
+                    .append(" hexes");
+        }
+        return builder.toString();
+    }
+
+    private void swap(final int a, final int b) {
+        final int team = this.ranking[a];
+        this.ranking[a] = this.ranking[b];
+        this.ranking[b] = team;
+        this.positions[this.ranking[a]] = a;
+    }
+}
@@ -1,7 +1,7 @@
 // SPDX-License-Identifier: GPL-3.0-only
 package com.xpdustry.hexed;
 
-import arc.math.Mathf;
+import arc.struct.IntSeq;
 import arc.util.Interval;
 import arc.util.Time;
 import com.xpdustry.distributor.api.Distributor;
@@ -12,36 +12,57 @@ import com.xpdustry.hexed.event.HexCaptureEvent;
 import com.xpdustry.hexed.event.HexLostEvent;
 import com.xpdustry.hexed.event.HexPlayerJoinEvent;
 import com.xpdustry.hexed.event.HexPlayerQuitEvent;
+import com.xpdustry.hexed.event.HexStateDeltaEvent;
 import com.xpdustry.hexed.event.HexedGameOverEvent;
+import com.xpdustry.hexed.generation.HexedMapContext;
+import com.xpdustry.hexed.model.Hex;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collector;
 import mindustry.Vars;
-import mindustry.content.Blocks;
 import mindustry.game.EventType;
 import mindustry.game.EventType.GameOverEvent;
 import mindustry.game.Team;
 import mindustry.gen.Call;
 import mindustry.gen.Groups;
 import mindustry.gen.Player;
+import mindustry.net.Administration.ActionType;
 import mindustry.world.blocks.storage.CoreBlock;
+import org.jspecify.annotations.Nullable;
 
 final class HexedLogic implements PluginListener {
 
-    private static final int CONTROLLER_TIMER = 0;
+    static final String NO_SPACE_TEXT =
+            "There are currently no empty hex spaces available.\nAssigning into spectator mode.";
+    private static final String SPAWNING_TEXT = "[accent]Spawning...";
+    private static final int SNAPSHOT_TIMER = 0;
     private static final int PLAYER_TIMER = 1;
 
     private final Interval interval = new Interval(2);
+    private final HexedDerelictConverter converter;
+    private final HexedDerelictSweeper sweeper;
     private final HexedPluginReloaded hexed;
+    private final HexStateDeltaEvent.Builder delta = new HexStateDeltaEvent.Builder();
+    // The players resolved for the current delta event, valid when their stamp matches
+    private final @Nullable Player[] resolved = new Player[Team.all.length];
+    private final int[] stamps = new int[Team.all.length];
+    private int stamp = 0;
+    private final IntSeq updated = new IntSeq();
 
     public HexedLogic(final HexedPluginReloaded hexed) {
         this.hexed = hexed;
+        this.converter = new HexedDerelictConverter(hexed.getNetStats());
+        this.sweeper = new HexedDerelictSweeper(hexed);
     }
 
     @Override
     public void onPluginInit() {
         Vars.netServer.assigner = new HexedTeamAssigner(this.hexed, Vars.netServer.assigner);
+        Vars.netServer.admins.addActionFilter(action -> !this.hexed.isEnabled()
+                || action.type != ActionType.placeBlock
+                || !HexedEntityBudget.isAtBuildingCap(action.player.team()));
     }
 
     @EventHandler
@@ -60,23 +81,31 @@ final class HexedLogic implements PluginListener {
         if (event.player().team().equals(Team.derelict)) {
             return;
         }
+        this.hexed.getPlayerIndex().update(event.player());
+        this.hexed.getHexedState0().getLeaderboard0().invalidate();
+        this.hexed.getJournal().recordJoin(event.player());
+        // The base is placed later by onPluginUpdate, within the per tick budget
+        if (this.hexed.getAdmissionQueue().add(event.player())) {
+            Call.setHudText(event.player().con(), SPAWNING_TEXT);
+            this.hexed
+                    .getNetStats()
+                    .record(HexedNetStats.HUD_TEXT, event.player(), HexedNetStats.sizeOf(SPAWNING_TEXT));
+        }
+    }
 
-        final var hexes = this.hexed.getHexedState().getHexes().stream()
-                .filter(hex -> this.hexed.getHexedState().getController(hex) == null
-                        && this.hexed.getHexedState().isAvailable(hex))
-                .toList();
-
-        if (hexes.isEmpty()) {
-            Call.infoMessage(
-                    event.player().con(),
-                    "There are currently no empty hex spaces available.\nAssigning into spectator mode.");
-            if (event.player().unit() != null) {
-                event.player().unit().kill();
+    private void spawn(final Player player) {
+        final var hex = this.hexed.getHexedState0().getRandomAvailableHex();
+        if (hex == null) {
+            Call.infoMessage(player.con(), NO_SPACE_TEXT);
+            this.hexed.getNetStats().record(HexedNetStats.INFO_MESSAGE, player, HexedNetStats.sizeOf(NO_SPACE_TEXT));
+            if (player.unit() != null) {
+                player.unit().kill();
             }
-            event.player().team(Team.derelict);
+            this.hexed.getPlayerIndex().remove(player, player.team());
+            this.hexed.getHexedState0().releaseTeam(player.team());
+            player.team(Team.derelict);
         } else {
-            final var hex = hexes.get(Mathf.random(0, hexes.size() - 1));
-            this.placeBaseSchematic(event.player(), hex.getTileX(), hex.getTileY());
+            this.placeBaseSchematic(player, hex.getTileX(), hex.getTileY());
             this.hexed.getHexedState0().updateProgress(hex);
         }
     }
@@ -89,9 +118,13 @@ final class HexedLogic implements PluginListener {
     @EventHandler
     public void onPlayerQuit(final HexPlayerQuitEvent event) {
         if (this.hexed.isEnabled()) {
+            this.hexed.getAdmissionQueue().remove(event.player());
+            this.hexed.getPlayerIndex().remove(event.player(), event.team());
             if (!event.team().equals(Team.derelict)) {
-                event.team().data().destroyToDerelict();
-                this.hexed.getHexedState().markUnavailableFor(event.team(), 10);
+                this.hexed.getHexedState0().getLeaderboard0().invalidate();
+                if (!this.converter.isConverting(event.team())) {
+                    this.converter.schedule(this.hexed.getHexedState0(), event.team());
+                }
             }
             if (event.player().unit() != null) {
                 event.player().unit().kill();
@@ -103,14 +136,72 @@ final class HexedLogic implements PluginListener {
 
     @EventHandler
     public void onBlockDestroy(final EventType.BlockDestroyEvent event) {
+        if (!this.hexed.isEnabled()) {
+            return;
+        }
         // reset last spawn times so this hex becomes vacant for a while.
-        if (this.hexed.isEnabled() && event.tile.block() instanceof CoreBlock) {
+        if (event.tile.block() instanceof CoreBlock) {
             final var hex = this.hexed.getHexedState().getHex(event.tile.x, event.tile.y);
             if (hex != null) {
                 this.hexed.getHexedState0().resetSpawnTimer(hex);
                 this.hexed.getHexedState0().updateProgress(hex);
             }
         }
+        this.recordActivity(event.tile.x, event.tile.y);
+    }
+
+    @EventHandler
+    public void onBlockBuildBegin(final EventType.BlockBuildBeginEvent event) {
+        if (this.hexed.isEnabled()) {
+            this.recordActivity(event.tile.x, event.tile.y);
+        }
+    }
+
+    @EventHandler
+    public void onBlockBuildEnd(final EventType.BlockBuildEndEvent event) {
+        if (this.hexed.isEnabled()) {
+            this.recordActivity(event.tile.x, event.tile.y);
+        }
+    }
+
+    private void recordActivity(final int x, final int y) {
+        final var hex = this.hexed.getHexedState0().locate(x, y);
+        if (hex != null) {
+            this.hexed.getHexedState0().getActivityTracker().record(hex);
+        }
+    }
+
+    @EventHandler
+    public void onHexStateDelta(final HexStateDeltaEvent event) {
+        // Kept for the listeners that handle the changes one by one
+        this.stamp++;
+        for (int i = 0; i < event.getChangeCount(); i++) {
+            final var current = event.getCurrentController(i);
+            if (current != null && !current.equals(Team.derelict)) {
+                final var player = this.resolve(current);
+                if (player != null) {
+                    Distributor.get().getEventBus().post(new HexCaptureEvent(player, event.getChangeHex(i)));
+                }
+            }
+            final var previous = event.getPreviousController(i);
+            if (previous != null && !previous.equals(Team.derelict)) {
+                final var player = this.resolve(previous);
+                if (player != null) {
+                    Distributor.get().getEventBus().post(new HexLostEvent(player, event.getChangeHex(i)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the player of a team at most once per delta event.
+     */
+    private @Nullable Player resolve(final Team team) {
+        if (this.stamps[team.id] != this.stamp) {
+            this.stamps[team.id] = this.stamp;
+            this.resolved[team.id] = this.hexed.getPlayer(team);
+        }
+        return this.resolved[team.id];
     }
 
     @Override
@@ -120,37 +211,79 @@ final class HexedLogic implements PluginListener {
         }
 
         this.hexed.getHexedState().incrementCounter(Time.delta);
+        this.hexed.getHexedState0().getTimerWheel().advance(Time.delta);
+        this.enforceUnitCap();
 
-        if (this.interval.get(CONTROLLER_TIMER, 2 * 60)) {
-            for (final var hex : this.hexed.getHexedState().getHexes()) {
-                final var oldController = this.hexed.getHexedState().getController(hex);
-                this.hexed.getHexedState0().updateProgress(hex);
-                final var newController = this.hexed.getHexedState().getController(hex);
-
-                if (newController != null
-                        && !newController.equals(oldController)
-                        && !newController.equals(Team.derelict)) {
-                    final var player = Groups.player.find(p -> p.team().equals(newController));
-                    if (player != null) {
-                        Distributor.get().getEventBus().post(new HexCaptureEvent(player, hex));
-                    }
-                }
+        final var queue = this.hexed.getAdmissionQueue();
+        final var budget = Vars.state.rules.tags.getInt(
+                HexedMapContext.PLACEMENTS_PER_TICK_TAG, HexedMapContext.DEFAULT_PLACEMENTS_PER_TICK);
+        for (int i = 0; i < budget; i++) {
+            final var player = queue.poll();
+            if (player == null) {
+                break;
+            }
+            if (player.isAdded() && !player.team().equals(Team.derelict)) {
+                this.spawn(player);
+            }
+        }
 
-                if (oldController != null
-                        && !oldController.equals(newController)
-                        && !oldController.equals(Team.derelict)) {
-                    final var player = Groups.player.find(p -> p.team().equals(oldController));
-                    if (player != null) {
-                        Distributor.get().getEventBus().post(new HexLostEvent(player, hex));
-                    }
-                }
+        this.converter.clear(this.hexed.getHexedState0());
+        this.converter.update(Vars.state.rules.tags.getInt(
+                HexedMapContext.DERELICT_CONVERSIONS_PER_TICK_TAG,
+                HexedMapContext.DEFAULT_DERELICT_CONVERSIONS_PER_TICK));
+        this.sweeper.update(Vars.state.rules.tags.getInt(
+                HexedMapContext.DERELICT_REMOVALS_PER_TICK_TAG, HexedMapContext.DEFAULT_DERELICT_REMOVALS_PER_TICK));
+
+        final var activity = this.hexed.getHexedState0().getActivityTracker();
+        for (final var hex : this.hexed.getHexedState().getHexes()) {
+            if (!activity.isDue(hex)) {
+                continue;
+            }
+
+            final var oldController = this.hexed.getHexedState().getController(hex);
+            this.hexed.getHexedState0().updateProgress(hex, this.delta);
+            this.updated.add(hex.getIdentifier());
+            final var newController = this.hexed.getHexedState().getController(hex);
+            if (!Objects.equals(oldController, newController)) {
+                this.delta.addChange(hex, oldController, newController);
             }
+
+            activity.reschedule(hex, this.hexed.getHexedState0().isContested(hex), this.isVisited(hex));
+        }
+
+        if (!this.updated.isEmpty()) {
+            this.hexed.getClientProtocol().publish(this.hexed.getHexedState0(), this.updated);
+            this.updated.clear();
+        }
+
+        if (!this.delta.isEmpty()) {
+            final var event = this.delta.build();
+            this.delta.clear();
+            Distributor.get().getEventBus().post(event);
+        }
+
+        if (this.interval.get(SNAPSHOT_TIMER, 2 * 60)) {
+            this.hexed.getHexedState0().publishSnapshot();
         }
 
         if (this.interval.get(PLAYER_TIMER, 60)) {
+            // Covers the player units, and the other units that capture hexes without a player nearby
+            for (final var unit : Groups.unit) {
+                if (!unit.team().equals(Team.derelict)) {
+                    final var hex = this.hexed.getHexedState0().locate(unit.tileX(), unit.tileY());
+                    if (hex != null && activity.isHibernating(hex)) {
+                        activity.wake(hex);
+                    }
+                }
+            }
+
             for (final var player : Groups.player) {
+                // Picks up team changes made outside of this plugin
+                this.hexed.getPlayerIndex().update(player);
+
                 if (!player.team().equals(Team.derelict)
-                        && player.team().cores().isEmpty()) {
+                        && player.team().cores().isEmpty()
+                        && !queue.contains(player)) {
                     final var oldTeam = player.team();
                     Distributor.get().getEventBus().post(new HexPlayerQuitEvent(player, oldTeam, true));
                 }
@@ -159,7 +292,7 @@ final class HexedLogic implements PluginListener {
                     player.clearUnit();
                 }
 
-                if (this.hexed.getHexedState().getControlled(player.team()).size()
+                if (this.hexed.getHexedState().getControlledCount(player.team())
                         == this.hexed.getHexedState().getHexes().size()) {
                     this.endGame();
                     break;
@@ -173,6 +306,49 @@ final class HexedLogic implements PluginListener {
         }
     }
 
+    /**
+     * Kills the most recent units of the teams over the unit cap. Checking the units once they are in the world
+     * covers every way of spawning them, factories, reconstructors, commands or scripts.
+     */
+    private void enforceUnitCap() {
+        final var cap = HexedEntityBudget.getUnitCap();
+        if (cap <= 0) {
+            return;
+        }
+        for (final var data : Vars.state.teams.present) {
+            final var units = data.units;
+            if (units.size <= cap || data.team.equals(Team.derelict)) {
+                continue;
+            }
+            // The list is only rebuilt once per frame, it may still hold units killed since
+            int alive = 0;
+            for (final var unit : units) {
+                if (unit.isValid()) {
+                    alive++;
+                }
+            }
+            for (int i = units.size - 1; i >= 0 && alive > cap; i--) {
+                final var unit = units.get(i);
+                if (!unit.isValid() || unit.isPlayer()) {
+                    continue;
+                }
+                Call.unitCapDeath(unit);
+                this.hexed.getNetStats().broadcast(HexedNetStats.UNIT_CAP_DEATH, Integer.BYTES);
+                alive--;
+            }
+        }
+    }
+
+    private boolean isVisited(final Hex hex) {
+        final var range = hex.getRadius() * 1.5F;
+        for (final var player : Groups.player) {
+            if (!player.team().equals(Team.derelict) && player.within(hex.getX(), hex.getY(), range)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void endGame() {
         if (!this.hexed.isEnabled() || Vars.state.gameOver) {
             return;
@@ -181,41 +357,27 @@ final class HexedLogic implements PluginListener {
                 .map(data -> data.team)
                 .filter(team -> !team.equals(Team.derelict))
                 .collect(maxList(Comparator.comparingInt(
-                        team -> this.hexed.getHexedState().getControlled(team).size())));
+                        team -> this.hexed.getHexedState().getControlledCount(team))));
         final var bus = Distributor.get().getEventBus();
         bus.post(new GameOverEvent(winners.size() == 1 ? winners.get(0) : Team.derelict));
         bus.post(new HexedGameOverEvent(winners));
     }
 
-    @SuppressWarnings("EnumOrdinal")
     private void placeBaseSchematic(final Player player, final int x, final int y) {
-        final var core = this.hexed.getHexedState().getBaseSchematic().getTiles().stream()
-                .filter(s -> s.block() instanceof CoreBlock)
-                .findFirst()
-                .orElseThrow();
-        final int cx = x - core.x();
-        final int cy = y - core.y();
-
-        for (final var stile : this.hexed.getHexedState().getBaseSchematic().getTiles()) {
-            final var tile = Vars.world.tile(stile.x() + cx, stile.y() + cy);
-            if (tile == null) {
-                return;
-            }
-
-            if (!tile.block().equals(Blocks.air)) {
-                tile.removeNet();
-            }
-
-            tile.setNet(stile.block(), player.team(), stile.rotation().ordinal());
-
-            if (stile.configuration() != null) {
-                tile.build.configureAny(stile.configuration());
-            }
-            if (tile.block() instanceof CoreBlock) {
-                for (final var stack : Vars.state.rules.loadout) {
-                    Call.setItem(tile.build, stack.item, stack.amount);
-                }
-            }
+        final var plan = this.hexed.getHexedState().getBaseSchematic().getPlacementPlan();
+        if (!plan.fits(x, y)) {
+            this.hexed.getLogger().warn("The base schematic does not fit at ({}, {}).", x, y);
+            return;
+        }
+        final var core = plan.place(x, y, player.team());
+        this.hexed.getNetStats().broadcast(HexedNetStats.BASE_PLACEMENT, plan.getPacketCount(), plan.getPacketSize());
+        if (core == null) {
+            this.hexed.getLogger().warn("The base schematic placed at ({}, {}) has no core.", x, y);
+            return;
+        }
+        // The next state snapshot carries the core items to the clients
+        for (final var stack : Vars.state.rules.loadout) {
+            core.items.set(stack.item, stack.amount);
         }
     }
 
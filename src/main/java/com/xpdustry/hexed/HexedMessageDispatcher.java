@@ -0,0 +1,178 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.struct.IntMap;
+import arc.util.Align;
+import arc.util.Time;
+import com.xpdustry.hexed.model.Hex;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import mindustry.gen.Call;
+import mindustry.gen.Groups;
+import mindustry.gen.Iconc;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Sends the UI messages of the plugin, merging bursts and capping what each player receives.
+ * <ul>
+ *     <li>Captures within a window are merged into a single toast, listing the capturers and their counts.</li>
+ *     <li>Losses of a player within a window are merged into a single announcement.</li>
+ *     <li>A pending popup is replaced by a newer one, popups are broadcast to everyone at once.</li>
+ *     <li>Announcements are limited per player and per second, the rest waits for the next tokens.</li>
+ * </ul>
+ * Chat messages and info dialogs are sent right away, they are rare and must not be lost.
+ */
+final class HexedMessageDispatcher {
+
+    private static final float WINDOW = Time.toSeconds / 2;
+    private static final int TOKENS_PER_SECOND = 4;
+    private static final int TOKENS_MAX = 4;
+    private static final int LISTED_CAPTURERS = 5;
+
+    private final IntMap<Outbox> outboxes = new IntMap<>();
+    private final HexedNetStats stats;
+    private float window = 0F;
+    private int captures = 0;
+    private @Nullable Hex captured = null;
+    // Captures per player within the window, in order of first capture
+    private final Map<Player, Integer> capturers = new LinkedHashMap<>();
+    private @Nullable String popup = null;
+
+    HexedMessageDispatcher(final HexedNetStats stats) {
+        this.stats = stats;
+    }
+
+    void capture(final Player player, final Hex hex) {
+        if (this.captures == 0) {
+            this.window = Time.time + WINDOW;
+        }
+        this.capturers.merge(player, 1, Integer::sum);
+        this.captures++;
+        this.captured = hex;
+    }
+
+    void lost(final Player player, final Hex hex) {
+        final var outbox = this.getOutbox(player);
+        if (outbox.losses == 0) {
+            outbox.window = Time.time + WINDOW;
+        }
+        outbox.losses++;
+        outbox.lost = hex;
+    }
+
+    void popup(final String text) {
+        this.popup = text;
+    }
+
+    void sendMessage(final String message) {
+        Call.sendMessage(message);
+        this.stats.broadcast(HexedNetStats.CHAT, HexedNetStats.sizeOf(message));
+    }
+
+    void infoMessage(final String message) {
+        Call.infoMessage(message);
+        this.stats.broadcast(HexedNetStats.INFO_MESSAGE, HexedNetStats.sizeOf(message));
+    }
+
+    void remove(final Player player) {
+        this.outboxes.remove(player.id);
+    }
+
+    void update() {
+        final var captured = this.captured;
+        if (this.captures > 0 && Time.time >= this.window && captured != null) {
+            final var text = this.getCaptureText(captured);
+            Call.warningToast(Iconc.warning, text);
+            this.stats.broadcast(HexedNetStats.TOAST, Integer.BYTES + HexedNetStats.sizeOf(text));
+            this.captures = 0;
+            this.captured = null;
+            this.capturers.clear();
+        }
+
+        final var popup = this.popup;
+        if (popup != null) {
+            Call.infoPopup(popup, 1F, Align.bottom, 0, 0, 0, 0);
+            // Duration, alignment and the four margins
+            this.stats.broadcast(HexedNetStats.POPUP, HexedNetStats.sizeOf(popup) + (6 * Integer.BYTES));
+            this.popup = null;
+        }
+
+        for (final var player : Groups.player) {
+            final var outbox = this.outboxes.get(player.id);
+            if (outbox == null) {
+                continue;
+            }
+            outbox.refill();
+            final var lost = outbox.lost;
+            if (outbox.losses > 0 && Time.time >= outbox.window && lost != null && outbox.take()) {
+                final var text = outbox.losses > 1
+                        ? "[scarlet]You lost " + outbox.losses + " hexes"
+                        : "[scarlet]You lost the hex #" + lost.getIdentifier() + " at (" + lost.getTileX() + ", "
+                                + lost.getTileY() + ")";
+                Call.announce(player.con(), text);
+                this.stats.record(HexedNetStats.ANNOUNCE, player, HexedNetStats.sizeOf(text));
+                outbox.losses = 0;
+                outbox.lost = null;
+            }
+        }
+    }
+
+    private String getCaptureText(final Hex captured) {
+        if (this.captures == 1) {
+            final var capturer = this.capturers.keySet().iterator().next();
+            return "Hex #" + captured.getIdentifier() + " captured by " + capturer.name();
+        }
+        final var builder = new StringBuilder().append(this.captures).append(" hexes captured by ");
+        if (this.capturers.size() == 1) {
+            return builder.append(this.capturers.keySet().iterator().next().name()).toString();
+        }
+        int listed = 0;
+        for (final var entry : this.capturers.entrySet()) {
+            if (listed == LISTED_CAPTURERS) {
+                return builder.append(" [white]and ")
+                        .append(this.capturers.size() - listed)
+                        .append(" more")
+                        .toString();
+            }
+            if (listed > 0) {
+                builder.append("[white], ");
+            }
+            builder.append(entry.getKey().name()).append(" [white](").append(entry.getValue()).append(')');
+            listed++;
+        }
+        return builder.toString();
+    }
+
+    private Outbox getOutbox(final Player player) {
+        var outbox = this.outboxes.get(player.id);
+        if (outbox == null) {
+            outbox = new Outbox();
+            this.outboxes.put(player.id, outbox);
+        }
+        return outbox;
+    }
+
+    private static final class Outbox {
+
+        private float tokens = TOKENS_MAX;
+        private float refilled = Time.time;
+        private float window = 0F;
+        private int losses = 0;
+        private @Nullable Hex lost = null;
+
+        private void refill() {
+            final var elapsed = (Time.time - this.refilled) / Time.toSeconds;
+            this.tokens = Math.min(TOKENS_MAX, this.tokens + elapsed * TOKENS_PER_SECOND);
+            this.refilled = Time.time;
+        }
+
+        private boolean take() {
+            if (this.tokens < 1F) {
+                return false;
+            }
+            this.tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.struct.IntMap;
+import arc.struct.ObjectMap;
+import arc.struct.Seq;
+import com.xpdustry.distributor.api.annotation.EventHandler;
+import com.xpdustry.distributor.api.annotation.TaskHandler;
+import com.xpdustry.distributor.api.plugin.PluginListener;
+import com.xpdustry.distributor.api.scheduler.MindustryTimeUnit;
+import mindustry.game.EventType;
+import mindustry.gen.Groups;
+import mindustry.gen.Player;
+
+/**
+ * Counts the packets sent by the plugin and their approximate size, per kind of message and per player.
+ * Sizes are estimates of the serialized payload plus a fixed framing overhead, compression is ignored.
+ */
+final class HexedNetStats implements PluginListener {
+
+    static final String HUD_TEXT = "hud-text";
+    static final String HUD_HIDE = "hud-hide";
+    static final String POPUP = "popup";
+    static final String TOAST = "toast";
+    static final String ANNOUNCE = "announce";
+    static final String CHAT = "chat";
+    static final String INFO_MESSAGE = "info-message";
+    static final String LABEL = "label";
+    static final String BINARY_STATE = "binary-state";
+    static final String BASE_PLACEMENT = "base-placement";
+    static final String SET_TEAMS = "set-teams";
+    static final String SET_TILE_BLOCKS = "set-tile-blocks";
+    static final String UNIT_CAP_DEATH = "unit-cap-death";
+
+    // Packet id and framing
+    private static final int OVERHEAD = 4;
+
+    private final ObjectMap<String, Counter> kinds = new ObjectMap<>();
+    private final IntMap<Counter> players = new IntMap<>();
+
+    /**
+     * Returns the approximate serialized size of a string, a presence flag and a length followed by the characters.
+     */
+    static int sizeOf(final String text) {
+        return 3 + text.length();
+    }
+
+    static int sizeOf(final int[] array) {
+        return 2 + (array.length * Integer.BYTES);
+    }
+
+    void record(final String kind, final Player player, final int bytes) {
+        this.record(kind, player, 1, bytes);
+    }
+
+    /**
+     * Records several packets sent to a player, with the total size of their payloads.
+     */
+    void record(final String kind, final Player player, final int packets, final int bytes) {
+        final var size = (packets * OVERHEAD) + bytes;
+        this.getCounter(kind).add(packets, size);
+        var counter = this.players.get(player.id);
+        if (counter == null) {
+            counter = new Counter(player.plainName());
+            this.players.put(player.id, counter);
+        }
+        counter.add(packets, size);
+    }
+
+    /**
+     * Records a packet sent to every connected player.
+     */
+    void broadcast(final String kind, final int bytes) {
+        this.broadcast(kind, 1, bytes);
+    }
+
+    void broadcast(final String kind, final int packets, final int bytes) {
+        for (final var player : Groups.player) {
+            this.record(kind, player, packets, bytes);
+        }
+    }
+
+    @TaskHandler(interval = 1L, unit = MindustryTimeUnit.SECONDS)
+    public void onStatsRoll() {
+        for (final var counter : this.kinds.values()) {
+            counter.roll();
+        }
+        for (final var counter : this.players.values()) {
+            counter.roll();
+        }
+    }
+
+    @EventHandler
+    public void onPlayerLeave(final EventType.PlayerLeave event) {
+        this.players.remove(event.player.id);
+    }
+
+    String render() {
+        final var builder = new StringBuilder("[accent]Hexed traffic, last second (total since start):");
+        final var kinds = this.kinds.values().toSeq().sort((a, b) -> Long.compare(b.totalBytes, a.totalBytes));
+        long packets = 0L;
+        long bytes = 0L;
+        for (final var counter : kinds) {
+            packets += counter.lastPackets;
+            bytes += counter.lastBytes;
+            counter.render(builder.append("\n[white]"));
+        }
+        builder.append("\n[accent]All: [white]")
+                .append(packets)
+                .append(" packets/s, ")
+                .append(bytes)
+                .append(" B/s");
+        if (!this.players.isEmpty()) {
+            builder.append("\n[accent]Per player, over ")
+                    .append(this.players.size)
+                    .append(" players: [white]")
+                    .append(packets / this.players.size)
+                    .append(" packets/s, ")
+                    .append(bytes / this.players.size)
+                    .append(" B/s");
+            final var players = new Seq<Counter>();
+            for (final var counter : this.players.values()) {
+                players.add(counter);
+            }
+            players.sort((a, b) -> Long.compare(b.lastBytes, a.lastBytes));
+            for (int i = 0; i < Math.min(5, players.size); i++) {
+                players.get(i).render(builder.append("\n[white]"));
+            }
+        }
+        return builder.toString();
+    }
+
+    private Counter getCounter(final String kind) {
+        var counter = this.kinds.get(kind);
+        if (counter == null) {
+            counter = new Counter(kind);
+            this.kinds.put(kind, counter);
+        }
+        return counter;
+    }
+
+    private static final class Counter {
+
+        private final String name;
+        private long packets = 0L;
+        private long bytes = 0L;
+        private long lastPackets = 0L;
+        private long lastBytes = 0L;
+        private long totalPackets = 0L;
+        private long totalBytes = 0L;
+
+        private Counter(final String name) {
+            this.name = name;
+        }
+
+        private void add(final int packets, final int bytes) {
+            this.packets += packets;
+            this.bytes += bytes;
+            this.totalPackets += packets;
+            this.totalBytes += bytes;
+        }
+
+        private void roll() {
+            this.lastPackets = this.packets;
+            this.lastBytes = this.bytes;
+            this.packets = 0L;
+            this.bytes = 0L;
+        }
+
+        private void render(final StringBuilder builder) {
+            builder.append(this.name)
+                    .append(": ")
+                    .append(this.lastPackets)
+                    .append(" packets/s, ")
+                    .append(this.lastBytes)
+                    .append(" B/s (")
+                    .append(this.totalPackets)
+                    .append(", ")
+                    .append(this.totalBytes)
+                    .append(" B)");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import mindustry.game.Team;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Maps each team to its player, since a hexed team has at most one.
+ * Stale entries left by team changes made outside this plugin are ignored on lookup and replaced on update,
+ * so lookups have no side effect and can be done from any thread.
+ */
+final class HexedPlayerIndex {
+
+    private final @Nullable Player[] players = new Player[Team.all.length];
+
+    @Nullable Player get(final Team team) {
+        final var player = this.players[team.id];
+        return player != null && player.isAdded() && player.team().equals(team) ? player : null;
+    }
+
+    void update(final Player player) {
+        if (!player.team().equals(Team.derelict)) {
+            this.players[player.team().id] = player;
+        }
+    }
+
+    void remove(final Player player, final Team team) {
+        if (this.players[team.id] == player) {
+            this.players[team.id] = null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.xpdustry.hexed;
 
 import com.xpdustry.distributor.api.Distributor;
 import com.xpdustry.distributor.api.annotation.PluginAnnotationProcessor;
+import com.xpdustry.distributor.api.event.EventSubscription;
 import com.xpdustry.distributor.api.plugin.AbstractMindustryPlugin;
 import com.xpdustry.distributor.api.plugin.PluginListener;
 import com.xpdustry.hexed.generation.AnukeHexedGenerator;
@@ -11,14 +12,23 @@ import com.xpdustry.hexed.generation.HexedMapGenerator;
 import com.xpdustry.hexed.generation.MapGenerator;
 import com.xpdustry.hexed.generation.MapLoader;
 import java.util.Objects;
+import java.util.function.Consumer;
 import mindustry.Vars;
+import mindustry.game.Team;
+import mindustry.gen.Player;
 import org.jspecify.annotations.Nullable;
 
 @SuppressWarnings("unused")
 public final class HexedPluginReloaded extends AbstractMindustryPlugin implements HexedAPI {
 
     private final PluginAnnotationProcessor<?> processor = PluginAnnotationProcessor.events(this);
-    private @Nullable HexedStateImpl state = null;
+    private final HexedPlayerIndex players = new HexedPlayerIndex();
+    private final HexedAdmissionQueue queue = new HexedAdmissionQueue();
+    private final HexedClientProtocol protocol = new HexedClientProtocol(this);
+    private final HexedNetStats stats = new HexedNetStats();
+    private final HexedJournal journal = new HexedJournal(this);
+    private final HexedAsyncLane lane = new HexedAsyncLane(this);
+    private volatile @Nullable HexedStateImpl state = null;
 
     @Override
     public HexedState getHexedState() {
@@ -29,6 +39,36 @@ public final class HexedPluginReloaded extends AbstractMindustryPlugin implement
         return Objects.requireNonNull(this.state);
     }
 
+    @Override
+    public @Nullable Player getPlayer(final Team team) {
+        return this.players.get(team);
+    }
+
+    HexedPlayerIndex getPlayerIndex() {
+        return this.players;
+    }
+
+    HexedAdmissionQueue getAdmissionQueue() {
+        return this.queue;
+    }
+
+    HexedClientProtocol getClientProtocol() {
+        return this.protocol;
+    }
+
+    HexedNetStats getNetStats() {
+        return this.stats;
+    }
+
+    HexedJournal getJournal() {
+        return this.journal;
+    }
+
+    @Override
+    public <E> EventSubscription subscribeAsync(final Class<E> event, final Consumer<E> listener) {
+        return this.lane.subscribe(event, listener);
+    }
+
     @Override
     public boolean isEnabled() {
         return Vars.state.rules.tags.getBool(HexedMapContext.HEXED_PRESENCE_FLAG);
@@ -46,6 +86,9 @@ public final class HexedPluginReloaded extends AbstractMindustryPlugin implement
                     context.getCaptureCalculator(),
                     context.getHexes(),
                     context.getDuration());
+            // Players still waiting from the previous game get a team again when they join the new one
+            this.queue.clear();
+            this.journal.rotate();
             return true;
         } catch (final Exception e) {
             this.getLogger().error("Failed to host a hexed game", e);
@@ -59,6 +102,10 @@ public final class HexedPluginReloaded extends AbstractMindustryPlugin implement
         this.addListener(new HexedLogic(this));
         this.addListener(new HexedRenderer(this));
         this.addListener(new HexedCommands(this));
+        this.addListener(this.protocol);
+        this.addListener(this.stats);
+        this.addListener(this.journal);
+        this.addListener(this.lane);
     }
 
     @Override
@@ -1,9 +1,7 @@
 // SPDX-License-Identifier: GPL-3.0-only
 package com.xpdustry.hexed;
 
-import arc.math.Mathf;
-import arc.util.Align;
-import arc.util.Interval;
+import arc.struct.IntMap;
 import arc.util.Strings;
 import arc.util.Time;
 import com.xpdustry.distributor.api.annotation.EventHandler;
@@ -14,92 +12,75 @@ import com.xpdustry.hexed.event.HexCaptureEvent;
 import com.xpdustry.hexed.event.HexLostEvent;
 import com.xpdustry.hexed.event.HexPlayerQuitEvent;
 import com.xpdustry.hexed.event.HexedGameOverEvent;
-import com.xpdustry.hexed.model.Hex;
-import java.util.ArrayList;
-import java.util.List;
 import mindustry.Vars;
-import mindustry.core.GameState;
 import mindustry.game.EventType;
 import mindustry.game.Team;
 import mindustry.gen.Call;
 import mindustry.gen.Groups;
-import mindustry.gen.Iconc;
-import mindustry.gen.WorldLabel;
-import mindustry.graphics.Layer;
+import mindustry.gen.Player;
+import org.jspecify.annotations.Nullable;
 
 final class HexedRenderer implements PluginListener {
 
-    private static final int HUD_TIMER = 0;
-    private static final int DURATION_TIMER = 1;
-
-    private final Interval timers = new Interval(2);
+    private final IntMap<HexedHudState> huds = new IntMap<>();
+    private final IntMap<HexedViewport> viewports = new IntMap<>();
+    private final HexedMessageDispatcher messages;
+    private @Nullable HexedHudComposer composer = null;
+    private @Nullable String duration = null;
+    private long durationSeconds = -1L;
+    private float popup = 0F;
     private final HexedPluginReloaded hexed;
 
     public HexedRenderer(final HexedPluginReloaded hexed) {
         this.hexed = hexed;
+        this.messages = new HexedMessageDispatcher(hexed.getNetStats());
     }
 
     @EventHandler
     public void onHexCapture(final HexCaptureEvent event) {
-        Call.warningToast(
-                Iconc.warning,
-                "Hex #" + event.hex().getIdentifier() + " captured by "
-                        + event.player().name());
+        this.messages.capture(event.player(), event.hex());
     }
 
     @EventHandler
     public void onHexLost(final HexLostEvent event) {
-        Call.announce(
-                event.player().con(),
-                "[scarlet]You lost the hex #" + event.hex().getIdentifier() + " at ("
-                        + event.hex().getTileX() + ", " + event.hex().getTileY() + ")");
+        this.messages.lost(event.player(), event.hex());
     }
 
     @EventHandler
     public void onPlayerQuit(final HexPlayerQuitEvent event) {
         if (event.virtual()) {
-            Call.sendMessage(event.player().name() + " [white]died of cringe.");
+            this.messages.sendMessage(event.player().name() + " [white]died of cringe.");
         }
     }
 
     @EventHandler
-    public void onPlayEvent(final EventType.StateChangeEvent event) {
-        if (this.hexed.isEnabled() && event.to == GameState.State.playing) {
-            for (final var hex : this.hexed.getHexedState().getHexes()) {
-                final var label = WorldLabel.create();
-                label.set(hex.getX(), hex.getY() + (Vars.tilesize / 2F));
-                label.text = "#" + hex.getIdentifier();
-                label.flags = WorldLabel.flagOutline;
-                label.z = Layer.flyingUnitLow;
-                label.fontSize = 3.5F;
-                label.add();
-            }
-        }
+    public void onPlayerLeave(final EventType.PlayerLeave event) {
+        this.huds.remove(event.player.id);
+        this.viewports.remove(event.player.id);
+        this.messages.remove(event.player);
     }
 
     @EventHandler
     public void onGameOverEvent(final HexedGameOverEvent event) {
         if (event.winners().isEmpty()) {
-            Call.infoMessage("No one won the game, too bad...");
+            this.messages.infoMessage("No one won the game, too bad...");
         } else if (event.winners().size() == 1) {
-            final var winner =
-                    Groups.player.find(p -> p.team().equals(event.winners().get(0)));
+            final var winner = this.hexed.getPlayer(event.winners().get(0));
             if (winner != null) {
-                Call.infoMessage(winner.coloredName() + " [accent]won the game with [white] "
-                        + this.hexed
-                                .getHexedState()
-                                .getControlled(event.winners().get(0))
-                                .size() + " []hexes!");
+                this.messages.infoMessage(winner.coloredName() + " [accent]won the game with [white] "
+                        + this.hexed.getHexedState().getControlledCount(event.winners().get(0))
+                        + " []hexes!");
             }
         } else {
-            Call.infoMessage("The game ended in a draw!");
+            this.messages.infoMessage("The game ended in a draw!");
         }
     }
 
     @TaskHandler(interval = 5L, unit = MindustryTimeUnit.MINUTES)
     public void onLeaderboardDisplay() {
         if (this.hexed.isEnabled() && Vars.state.isGame()) {
-            Call.sendMessage(HexedUtils.createLeaderboard(this.hexed.getHexedState()));
+            this.messages.sendMessage(
+                    this.hexed.getHexedState0().getLeaderboard0().render(this.hexed.getPlayerIndex()));
         }
     }
 
@@ -109,69 +90,92 @@ final class HexedRenderer implements PluginListener {
             return;
         }
 
-        if (this.timers.get(HUD_TIMER, Time.toSeconds / 5)) {
-            this.updateHud();
+        final var state = this.hexed.getHexedState0();
+        var composer = this.composer;
+        if (composer == null || !composer.isFor(state)) {
+            composer = this.composer = new HexedHudComposer(state, this.hexed.getPlayerIndex());
         }
 
-        if (this.timers.get(DURATION_TIMER, Time.toSeconds)) {
-            this.updateDuration();
+        // Each player is refreshed on its own phase, so the work is spread over every tick
+        for (final var player : Groups.player) {
+            var hud = this.huds.get(player.id);
+            if (hud == null) {
+                hud = new HexedHudState(player.id);
+                this.huds.put(player.id, hud);
+            }
+            if (hud.isRefreshDue()) {
+                hud.scheduleRefresh(this.updateHud(state, composer, player, hud));
+            }
+            var viewport = this.viewports.get(player.id);
+            if (viewport == null) {
+                viewport = new HexedViewport(player.id);
+                this.viewports.put(player.id, viewport);
+            }
+            if (viewport.isRefreshDue() && !this.hexed.getClientProtocol().isSubscribed(player)) {
+                viewport.refresh(state, player, this.hexed.getNetStats());
+            }
         }
+
+        // The timer is the same for everyone, so it stays a single broadcast
+        if (Time.time >= this.popup) {
+            this.popup = Math.max(this.popup + Time.toSeconds, Time.time);
+            this.messages.popup(this.getDurationText(state));
+        }
+
+        this.messages.update();
     }
 
-    private void updateHud() {
-        final List<Hex> hexes = new ArrayList<>(this.hexed.getHexedState().getHexes());
-        for (final var player : Groups.player) {
-            hexes.sort((a, b) -> {
-                final var aDistance = Mathf.dst(a.getX(), a.getY(), player.x(), player.y());
-                final var bDistance = Mathf.dst(b.getX(), b.getY(), player.x(), player.y());
-                return Float.compare(aDistance, bDistance);
-            });
-
-            Hex hex = null;
-            for (final var value : hexes) {
-                if (value.contains(player.tileX(), player.tileY())) {
-                    hex = value;
-                    break;
-                }
-            }
+    /**
+     * Returns the delay before the next refresh, shorter when the player is watching a capture.
+     */
+    private float updateHud(
+            final HexedStateImpl state, final HexedHudComposer composer, final Player player, final HexedHudState hud) {
+        if (this.hexed.getAdmissionQueue().contains(player)) {
+            // The admission queue displays its own text
+            hud.invalidate();
+            return HexedHudState.DEFAULT_INTERVAL;
+        }
 
-            if (hex == null || player.team().equals(Team.derelict)) {
+        final var hex = hud.locate(state, player.tileX(), player.tileY());
+        // Subscribed clients render the hexes from the binary protocol
+        if (hex == null
+                || player.team().equals(Team.derelict)
+                || this.hexed.getClientProtocol().isSubscribed(player)) {
+            if (hud.update(HexedHudState.HIDDEN, 0, 0, 0, 0)) {
                 Call.hideHudText(player.con());
-            } else {
-                final var builder = new StringBuilder();
-                builder.append("[white]Hex #").append(hex.getIdentifier());
-                final var team = this.hexed.getHexedState().getController(hex);
-                if (team != null) {
-                    builder.append("\n[#").append(team.color).append("]Controlled");
-                    final var controller = Groups.player.find(p -> p.team().equals(team));
-                    if (controller == null) {
-                        this.hexed.getLogger().warn("Team {} has no player.", team.name);
-                        builder.append(" by [white]Unknown");
-                    } else {
-                        builder.append(" by ").append(controller.plainName());
-                    }
-                } else {
-                    builder.append("\n[lightgray][[empty]");
-                }
-                if (!player.team().equals(team) && this.hexed.getHexedState().getProgress(hex, player.team()) > 0) {
-                    builder.append("\n[lightgray]Capture progress: [accent]")
-                            .append(Strings.fixed(this.hexed.getHexedState().getProgress(hex, player.team()), 1))
-                            .append("%");
-                }
-
-                Call.setHudText(player.con(), builder.toString());
+                this.hexed.getNetStats().record(HexedNetStats.HUD_HIDE, player, 0);
             }
+            return HexedHudState.IDLE_INTERVAL;
+        }
+
+        final var unitCap = HexedEntityBudget.getUnitCap();
+        final var buildingCap = HexedEntityBudget.getBuildingCap();
+        final var team = state.getController(hex);
+        // Only the first decimal is displayed
+        final var progress =
+                !player.team().equals(team) ? Math.round(state.getProgress(hex, player.team()) * 10F) : 0;
+        final var units = unitCap > 0 ? HexedEntityBudget.getUnitCount(player.team()) : 0;
+        final var buildings = buildingCap > 0 ? HexedEntityBudget.getBuildingCount(player.team()) : 0;
+        if (hud.update(hex.getIdentifier(), team == null ? -1 : team.id, progress, units, buildings)) {
+            composer.compose(hud.getBuilder(), hex, team, progress, units, unitCap, buildings, buildingCap);
+            final var text = hud.getBuilder().toString();
+            Call.setHudText(player.con(), text);
+            this.hexed.getNetStats().record(HexedNetStats.HUD_TEXT, player, HexedNetStats.sizeOf(text));
         }
+        return progress > 0 || state.isContested(hex)
+                ? HexedHudState.ACTIVE_INTERVAL
+                : HexedHudState.DEFAULT_INTERVAL;
     }
 
-    private void updateDuration() {
-        final var remaining = Math.max(
-                this.hexed
-                        .getHexedState()
-                        .getDuration()
-                        .minus(this.hexed.getHexedState().getCounter())
-                        .toMillis(),
-                0L);
-        Call.infoPopup("Time: " + Strings.formatMillis(remaining), 1, Align.bottom, 0, 0, 0, 0);
+    private String getDurationText(final HexedStateImpl state) {
+        final var remaining = Math.max(state.getDuration().minus(state.getCounter()).toMillis(), 0L);
+        // The text only changes once per second
+        final var seconds = remaining / 1000L;
+        var text = this.duration;
+        if (text == null || this.durationSeconds != seconds) {
+            text = this.duration = "Time: " + Strings.formatMillis(remaining);
+            this.durationSeconds = seconds;
+        }
+        return text;
     }
 }
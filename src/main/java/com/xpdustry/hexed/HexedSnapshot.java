@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import com.xpdustry.hexed.model.Hex;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import mindustry.game.Team;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable copy of the {@link HexedState}, published by the game thread once per capture cycle.
+ * Unlike the state itself, it can be read from any thread.
+ */
+public final class HexedSnapshot {
+
+    private static final int TEAMS = Team.all.length;
+    // Shared by the hexes without any progress
+    static final float[] EMPTY_ROW = new float[TEAMS];
+
+    private final long version;
+    private final List<Hex> hexes;
+    private final byte[] controllers;
+    private final BitSet controlled;
+    // Rows are shared between snapshots, they must never be modified
+    private final float[][] rows;
+    private final int[] counts;
+    private final Duration counter;
+    private final Duration duration;
+
+    HexedSnapshot(
+            final long version,
+            final List<Hex> hexes,
+            final byte[] controllers,
+            final BitSet controlled,
+            final float[][] rows,
+            final int[] counts,
+            final Duration counter,
+            final Duration duration) {
+        this.version = version;
+        this.hexes = hexes;
+        this.controllers = controllers.clone();
+        this.controlled = (BitSet) controlled.clone();
+        this.rows = rows;
+        this.counts = counts.clone();
+        this.counter = counter;
+        this.duration = duration;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public List<Hex> getHexes() {
+        return this.hexes;
+    }
+
+    public @Nullable Team getController(final Hex hex) {
+        final int index = hex.getIdentifier();
+        return this.controlled.get(index) ? Team.all[this.controllers[index] & 0xFF] : null;
+    }
+
+    public int getControlledCount(final Team team) {
+        return this.counts[team.id];
+    }
+
+    public float getProgress(final Hex hex, final Team team) {
+        final var row = this.rows[hex.getIdentifier()];
+        final var progress = row[team.id] * 100F;
+        if (this.controlled.get(hex.getIdentifier())) {
+            final int controller = this.controllers[hex.getIdentifier()] & 0xFF;
+            if (controller != team.id) {
+                return (progress / (row[controller] * 100F)) * 100F;
+            }
+        }
+        return progress;
+    }
+
+    float[][] getRows() {
+        return this.rows;
+    }
+
+    public Duration getCounter() {
+        return this.counter;
+    }
+
+    public Duration getDuration() {
+        return this.duration;
+    }
+}
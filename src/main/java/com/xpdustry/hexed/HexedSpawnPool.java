@@ -0,0 +1,44 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.math.Mathf;
+import java.util.Arrays;
+
+/**
+ * A set of hex identifiers supporting constant time insertion, removal and random selection.
+ */
+final class HexedSpawnPool {
+
+    private final int[] entries;
+    private final int[] positions;
+    private int size = 0;
+
+    HexedSpawnPool(final int capacity) {
+        this.entries = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, -1);
+    }
+
+    void add(final int index) {
+        if (this.positions[index] != -1) {
+            return;
+        }
+        this.entries[this.size] = index;
+        this.positions[index] = this.size++;
+    }
+
+    void remove(final int index) {
+        final int position = this.positions[index];
+        if (position == -1) {
+            return;
+        }
+        final int last = this.entries[--this.size];
+        this.entries[position] = last;
+        this.positions[last] = position;
+        this.positions[index] = -1;
+    }
+
+    int random() {
+        return this.size == 0 ? -1 : this.entries[Mathf.random(this.size - 1)];
+    }
+}
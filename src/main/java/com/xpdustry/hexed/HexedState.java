@@ -4,6 +4,7 @@ package com.xpdustry.hexed;
 import com.xpdustry.hexed.generation.ImmutableSchematic;
 import com.xpdustry.hexed.model.Hex;
 import java.time.Duration;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -16,6 +17,10 @@ public interface HexedState {
 
     List<Hex> getControlled(final Team team);
 
+    int getControlledCount(final Team team);
+
+    BitSet getControlledIdentifiers(final Team team);
+
     @Nullable Team getController(final Hex hex);
 
     @Nullable Hex getHex(final int x, final int y);
@@ -38,6 +43,8 @@ public interface HexedState {
 
     void incrementCounter(final float delta);
 
+    HexedSnapshot snapshot();
+
     @SuppressWarnings("NullableProblems") // "team != null && team != Team.derelict" is confusing idea...
     default Map<Team, Integer> getLeaderboard() {
         return this.getHexes().stream()
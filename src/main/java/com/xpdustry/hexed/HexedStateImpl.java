@@ -1,35 +1,67 @@
 // SPDX-License-Identifier: GPL-3.0-only
 package com.xpdustry.hexed;
 
+import arc.math.Mathf;
 import arc.math.geom.Point2;
 import arc.struct.IntFloatMap;
 import arc.struct.IntMap;
 import arc.util.Time;
-import arc.util.Timekeeper;
+import com.xpdustry.hexed.event.HexStateDeltaEvent;
 import com.xpdustry.hexed.generation.ImmutableSchematic;
 import com.xpdustry.hexed.model.Hex;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import mindustry.Vars;
 import mindustry.game.Team;
+import mindustry.gen.Groups;
 import org.jspecify.annotations.Nullable;
 
 final class HexedStateImpl implements HexedState {
 
     private static final float SPAWN_DELAY_SECONDS = 60F * 4F;
+    private static final int TEAMS = Team.all.length;
+    // States are only created on the game thread
+    private static int generations = 0;
 
-    private final IntFloatMap unavailableTeams = new IntFloatMap();
-    private final Map<Hex, Team> controllers = new HashMap<>();
     private final List<Hex> hexes;
     private final IntMap<Hex> positions = new IntMap<>();
-    private final IntMap<Timekeeper> spawnTimers = new IntMap<>();
-    private final IntMap<IntFloatMap> progress = new IntMap<>();
+    // The identifier plus one of the hex containing each tile of the world, 0 if none
+    private final int[] tiles;
+    private final int width;
+    private final int height;
+    // All the arrays below are indexed by hex identifier, and by team id for the second dimension
+    private final Hex[] identifiers;
+    private final byte[] controllers;
+    private final BitSet controlled;
+    private final int[] counts = new int[TEAMS];
+    private final @Nullable BitSet[] owned = new BitSet[TEAMS];
+    private final float[] progress;
+    // Progress rows changed since the last snapshot
+    private final BitSet dirty;
+    private final @Nullable HexedTimerWheel.Timer[] spawnTimers;
+    private final HexedSpawnPool spawnable;
+    private final BitSet lockedHexes;
+    private final @Nullable HexedTimerWheel.Timer[] teamTimers = new HexedTimerWheel.Timer[TEAMS];
+    private final BitSet lockedTeams = new BitSet(TEAMS);
+    private final HexedTeamPool teams = new HexedTeamPool();
+    private final long[] used = new long[TEAMS / Long.SIZE];
+    private final IntFloatMap scratch = new IntFloatMap(4);
+    private final float[] previous = new float[TEAMS];
+    private final HexedLeaderboard leaderboard = new HexedLeaderboard();
+    private final HexedActivityTracker activity;
+    private volatile HexedSnapshot snapshot;
     private final Duration duration;
     private float counter = 0f;
     private final ImmutableSchematic base;
     private final HexedCaptureProgress calculator;
+    private final HexedTimerWheel timers = new HexedTimerWheel();
+    private final int generation = ++generations;
 
     HexedStateImpl(
             final ImmutableSchematic base,
@@ -40,9 +72,53 @@ final class HexedStateImpl implements HexedState {
         this.calculator = calculator;
         this.duration = duration;
         this.hexes = List.copyOf(hexes);
+        final var identifiers = new BitSet();
         for (final var hex : this.hexes) {
+            if (hex.getIdentifier() < 0 || identifiers.get(hex.getIdentifier())) {
+                throw new IllegalArgumentException("Invalid or duplicate hex identifier " + hex.getIdentifier());
+            }
+            identifiers.set(hex.getIdentifier());
             this.positions.put(Point2.pack(hex.getTileX(), hex.getTileY()), hex);
         }
+        final int size = identifiers.length();
+        this.identifiers = new Hex[size];
+        for (final var hex : this.hexes) {
+            this.identifiers[hex.getIdentifier()] = hex;
+        }
+        this.controllers = new byte[size];
+        this.controlled = new BitSet(size);
+        this.progress = new float[size * TEAMS];
+        this.dirty = new BitSet(size);
+        this.spawnTimers = new HexedTimerWheel.Timer[size];
+        this.width = Vars.world.width();
+        this.height = Vars.world.height();
+        this.tiles = new int[this.width * this.height];
+        for (final var hex : this.hexes) {
+            // The diameter bounds the extent of every hex shape
+            final int extent = hex.getTileDiameter();
+            final int minX = Math.max(hex.getTileX() - extent, 0);
+            final int maxX = Math.min(hex.getTileX() + extent, this.width - 1);
+            final int minY = Math.max(hex.getTileY() - extent, 0);
+            final int maxY = Math.min(hex.getTileY() + extent, this.height - 1);
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    // The first hex of the list wins where they overlap
+                    if (this.tiles[(y * this.width) + x] == 0 && hex.contains(x, y)) {
+                        this.tiles[(y * this.width) + x] = hex.getIdentifier() + 1;
+                    }
+                }
+            }
+        }
+        this.spawnable = new HexedSpawnPool(size);
+        this.lockedHexes = new BitSet(size);
+        this.activity = new HexedActivityTracker(size);
+        for (final var hex : this.hexes) {
+            this.spawnable.add(hex.getIdentifier());
+        }
+        final var rows = new float[size][];
+        Arrays.fill(rows, HexedSnapshot.EMPTY_ROW);
+        this.snapshot = this.createSnapshot(0L, rows);
+        this.refillTeams();
     }
 
     @Override
@@ -50,16 +126,52 @@ final class HexedStateImpl implements HexedState {
         return this.hexes;
     }
 
+    /**
+     * Returns a number identifying this game, the caches built from a previous game can be detected with it.
+     */
+    int getGeneration() {
+        return this.generation;
+    }
+
     @Override
     public List<Hex> getControlled(final Team team) {
-        return this.hexes.stream()
-                .filter(hex -> team.equals(this.getController(hex)))
-                .toList();
+        final var owned = this.owned[team.id];
+        if (owned == null || owned.isEmpty()) {
+            return List.of();
+        }
+        final List<Hex> result = new ArrayList<>(this.counts[team.id]);
+        for (int i = owned.nextSetBit(0); i >= 0; i = owned.nextSetBit(i + 1)) {
+            result.add(this.identifiers[i]);
+        }
+        return List.copyOf(result);
+    }
+
+    @Override
+    public int getControlledCount(final Team team) {
+        return this.counts[team.id];
+    }
+
+    @Override
+    public BitSet getControlledIdentifiers(final Team team) {
+        final var owned = this.owned[team.id];
+        return owned == null ? new BitSet() : (BitSet) owned.clone();
+    }
+
+    @Override
+    public Map<Team, Integer> getLeaderboard() {
+        final Map<Team, Integer> leaderboard = new HashMap<>();
+        for (int i = 0; i < TEAMS; i++) {
+            if (this.counts[i] > 0 && i != Team.derelict.id) {
+                leaderboard.put(Team.all[i], this.counts[i]);
+            }
+        }
+        return leaderboard;
     }
 
     @Override
     public @Nullable Team getController(final Hex hex) {
-        return this.controllers.get(hex);
+        final int index = hex.getIdentifier();
+        return this.controlled.get(index) ? Team.all[this.controllers[index] & 0xFF] : null;
     }
 
     @Override
@@ -67,30 +179,179 @@ final class HexedStateImpl implements HexedState {
         return this.positions.get(Point2.pack(x, y));
     }
 
+    Hex getHexByIdentifier(final int identifier) {
+        return this.identifiers[identifier];
+    }
+
+    public @Nullable Hex locate(final int x, final int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+            return null;
+        }
+        final int identifier = this.tiles[(y * this.width) + x] - 1;
+        return identifier == -1 ? null : this.identifiers[identifier];
+    }
+
+    /**
+     * Returns whether a team other than the controller, or any team if there is no controller, holds capture
+     * progress in this hex. Derelict leftovers are ignored.
+     */
+    public boolean isContested(final Hex hex) {
+        final int row = hex.getIdentifier() * TEAMS;
+        final int controller =
+                this.controlled.get(hex.getIdentifier()) ? this.controllers[hex.getIdentifier()] & 0xFF : -1;
+        for (int i = 0; i < TEAMS; i++) {
+            if (i != controller && i != Team.derelict.id && this.progress[row + i] > 0F) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean isAvailable(final Hex hex) {
-        return (this.getController(hex) == null)
-                && this.spawnTimers
-                        .get(
-                                Point2.pack(hex.getTileX(), hex.getTileY()),
-                                () -> Timekeeper.ofSeconds(SPAWN_DELAY_SECONDS))
-                        .get();
+        final int index = hex.getIdentifier();
+        return !this.controlled.get(index) && this.spawnTimers[index] == null && !this.lockedHexes.get(index);
     }
 
     @Override
     public boolean isAvailable(final Team team) {
-        return !team.equals(Team.derelict) && !team.active() && Time.time > this.unavailableTeams.get(team.id, 0F);
+        return !team.equals(Team.derelict) && !team.active() && this.isTeamFree(team.id);
+    }
+
+    private boolean isTeamFree(final int id) {
+        return this.teamTimers[id] == null && !this.lockedTeams.get(id);
+    }
+
+    /**
+     * Keeps the team and the given hexes out of the pools until {@link #unlock(Team, BitSet, int)} is called.
+     */
+    public void lock(final Team team, final BitSet hexes) {
+        final var previous = this.teamTimers[team.id];
+        if (previous != null) {
+            previous.cancel();
+            this.teamTimers[team.id] = null;
+        }
+        this.lockedTeams.set(team.id);
+        this.teams.remove(team.id);
+        this.lockedHexes.or(hexes);
+        for (int i = hexes.nextSetBit(0); i >= 0; i = hexes.nextSetBit(i + 1)) {
+            this.spawnable.remove(i);
+        }
+    }
+
+    public void unlock(final Team team, final BitSet hexes, final int seconds) {
+        this.lockedHexes.andNot(hexes);
+        for (int i = hexes.nextSetBit(0); i >= 0; i = hexes.nextSetBit(i + 1)) {
+            this.refreshSpawnable(i);
+        }
+        this.lockedTeams.clear(team.id);
+        this.markUnavailableFor(team, seconds);
     }
 
     @Override
     public void markUnavailableFor(final Team team, final int seconds) {
-        this.unavailableTeams.put(team.id, Time.time + (Time.toSeconds * seconds));
+        final int id = team.id;
+        final var previous = this.teamTimers[id];
+        if (previous != null) {
+            previous.cancel();
+        }
+        this.teams.remove(id);
+        this.teamTimers[id] = this.timers.schedule(Time.toSeconds * seconds, () -> {
+            this.teamTimers[id] = null;
+            if (!this.lockedTeams.get(id)) {
+                this.teams.add(id);
+            }
+        });
+    }
+
+    public @Nullable Team pollAvailableTeam() {
+        var team = this.pollAvailableTeam0();
+        if (team == null) {
+            // Teams handed to players that never finished connecting are not given back, recover them here
+            this.refillTeams();
+            team = this.pollAvailableTeam0();
+        }
+        return team;
+    }
+
+    private @Nullable Team pollAvailableTeam0() {
+        final int first = this.teams.next(Mathf.random(TEAMS - 1));
+        int id = first;
+        while (id != -1) {
+            final var team = Team.all[id];
+            if (!team.active()) {
+                this.teams.remove(id);
+                return team;
+            }
+            id = this.teams.next((id + 1) % TEAMS);
+            if (id == first) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    public void releaseTeam(final Team team) {
+        if (isPlayableTeam(team.id) && this.isTeamFree(team.id)) {
+            this.teams.add(team.id);
+        }
+    }
+
+    private void refillTeams() {
+        Arrays.fill(this.used, 0L);
+        for (final var player : Groups.player) {
+            this.used[player.team().id >>> 6] |= 1L << player.team().id;
+        }
+        for (int id = 0; id < TEAMS; id++) {
+            if (isPlayableTeam(id)
+                    && (this.used[id >>> 6] & (1L << id)) == 0
+                    && this.isTeamFree(id)) {
+                this.teams.add(id);
+            }
+        }
+    }
+
+    private static boolean isPlayableTeam(final int id) {
+        for (final var base : Team.baseTeams) {
+            if (base.id == id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public HexedLeaderboard getLeaderboard0() {
+        return this.leaderboard;
+    }
+
+    public HexedActivityTracker getActivityTracker() {
+        return this.activity;
     }
 
     public void resetSpawnTimer(final Hex hex) {
-        this.spawnTimers
-                .get(Point2.pack(hex.getTileX(), hex.getTileY()), () -> Timekeeper.ofSeconds(SPAWN_DELAY_SECONDS))
-                .reset();
+        final int index = hex.getIdentifier();
+        final var previous = this.spawnTimers[index];
+        if (previous != null) {
+            previous.cancel();
+        }
+        this.spawnable.remove(index);
+        this.spawnTimers[index] = this.timers.schedule(Time.toSeconds * SPAWN_DELAY_SECONDS, () -> {
+            this.spawnTimers[index] = null;
+            this.refreshSpawnable(index);
+        });
+    }
+
+    private void refreshSpawnable(final int index) {
+        if (!this.controlled.get(index) && this.spawnTimers[index] == null && !this.lockedHexes.get(index)) {
+            this.spawnable.add(index);
+        } else {
+            this.spawnable.remove(index);
+        }
+    }
+
+    public @Nullable Hex getRandomAvailableHex() {
+        final int index = this.spawnable.random();
+        return index == -1 ? null : this.identifiers[index];
     }
 
     @Override
@@ -113,6 +374,49 @@ final class HexedStateImpl implements HexedState {
         this.counter += delta;
     }
 
+    /**
+     * Returns the timers of this game, they are dropped along with the state when a new game is hosted.
+     */
+    HexedTimerWheel getTimerWheel() {
+        return this.timers;
+    }
+
+    @Override
+    public HexedSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    public void publishSnapshot() {
+        final var previous = this.snapshot;
+        this.snapshot = this.createSnapshot(previous.getVersion() + 1L, previous.getRows().clone());
+    }
+
+    /**
+     * Creates a snapshot from the rows of the previous one, only the rows that changed since are copied.
+     */
+    private HexedSnapshot createSnapshot(final long version, final float[][] rows) {
+        for (int i = this.dirty.nextSetBit(0); i >= 0; i = this.dirty.nextSetBit(i + 1)) {
+            final int row = i * TEAMS;
+            rows[i] = HexedSnapshot.EMPTY_ROW;
+            for (int j = row; j < row + TEAMS; j++) {
+                if (this.progress[j] != 0F) {
+                    rows[i] = Arrays.copyOfRange(this.progress, row, row + TEAMS);
+                    break;
+                }
+            }
+        }
+        this.dirty.clear();
+        return new HexedSnapshot(
+                version,
+                this.hexes,
+                this.controllers,
+                this.controlled,
+                rows,
+                this.counts,
+                this.getCounter(),
+                this.duration);
+    }
+
     @Override
     public ImmutableSchematic getBaseSchematic() {
         return this.base;
@@ -120,30 +424,75 @@ final class HexedStateImpl implements HexedState {
 
     @Override
     public float getProgress(final Hex hex, final Team team) {
-        final var progress = this.getProgress0(hex, team);
-        final var controller = this.getController(hex);
-        if (controller != null && !controller.equals(team)) {
-            return (progress / this.getProgress0(hex, controller)) * 100F;
+        final int row = hex.getIdentifier() * TEAMS;
+        final var progress = this.progress[row + team.id] * 100F;
+        if (this.controlled.get(hex.getIdentifier())) {
+            final int controller = this.controllers[hex.getIdentifier()] & 0xFF;
+            if (controller != team.id) {
+                return (progress / (this.progress[row + controller] * 100F)) * 100F;
+            }
         }
         return progress;
     }
 
-    private float getProgress0(final Hex hex, final Team team) {
-        return this.progress
-                        .get(Point2.pack(hex.getTileX(), hex.getTileY()), () -> new IntFloatMap(4))
-                        .get(team.id)
-                * 100F;
+    public void updateProgress(final Hex hex) {
+        final int index = hex.getIdentifier();
+        final int row = index * TEAMS;
+        Arrays.fill(this.progress, row, row + TEAMS, 0F);
+        this.dirty.set(index);
+        this.scratch.clear();
+        this.calculator.calculate(hex, this.scratch);
+
+        int winner = -1;
+        float best = 0F;
+        for (final var entry : this.scratch.entries()) {
+            this.progress[row + entry.key] = entry.value;
+            if (entry.value > best && Team.all[entry.key].active()) {
+                winner = entry.key;
+                best = entry.value;
+            }
+        }
+
+        this.setController(index, winner != -1 && best >= 1F ? winner : -1);
     }
 
-    public void updateProgress(final Hex hex) {
-        final var progress = this.progress.get(Point2.pack(hex.getTileX(), hex.getTileY()), () -> new IntFloatMap(4));
-        progress.clear();
-        this.calculator.calculate(hex, progress);
-        final var data = Vars.state.teams.getActive().max(t -> progress.get(t.team.id));
-        if (data != null && progress.get(data.team.id) >= 1F) {
-            this.controllers.put(hex, data.team);
+    /**
+     * Updates the progress of a hex and adds the progress that changed to the given list.
+     */
+    void updateProgress(final Hex hex, final HexStateDeltaEvent.Builder changes) {
+        final int row = hex.getIdentifier() * TEAMS;
+        System.arraycopy(this.progress, row, this.previous, 0, TEAMS);
+        this.updateProgress(hex);
+        for (int i = 0; i < TEAMS; i++) {
+            if (this.previous[i] != this.progress[row + i]) {
+                changes.addProgress(hex, Team.all[i], this.previous[i], this.progress[row + i]);
+            }
+        }
+    }
+
+    private void setController(final int index, final int team) {
+        final int previous = this.controlled.get(index) ? this.controllers[index] & 0xFF : -1;
+        if (previous == team) {
+            return;
+        }
+        if (previous != -1) {
+            this.counts[previous]--;
+            Objects.requireNonNull(this.owned[previous]).clear(index);
+            this.leaderboard.update(Team.all[previous], this.counts[previous]);
+        }
+        if (team != -1) {
+            this.counts[team]++;
+            this.leaderboard.update(Team.all[team], this.counts[team]);
+            var owned = this.owned[team];
+            if (owned == null) {
+                owned = this.owned[team] = new BitSet(this.identifiers.length);
+            }
+            owned.set(index);
+            this.controllers[index] = (byte) team;
+            this.controlled.set(index);
         } else {
-            this.controllers.put(hex, null);
+            this.controlled.clear(index);
         }
+        this.refreshSpawnable(index);
     }
 }
@@ -1,11 +1,6 @@
 // SPDX-License-Identifier: GPL-3.0-only
 package com.xpdustry.hexed;
 
-import arc.struct.Seq;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
 import mindustry.core.NetServer.TeamAssigner;
 import mindustry.game.Team;
 import mindustry.gen.Call;
@@ -15,13 +10,6 @@ final class HexedTeamAssigner implements TeamAssigner {
 
     private final HexedPluginReloaded hexed;
     private final TeamAssigner parent;
-    private final List<Team> teams = Arrays.stream(Team.all)
-            .filter(t -> !Arrays.asList(Team.baseTeams).contains(t))
-            .collect(Collectors.toList());
-
-    {
-        Collections.shuffle(this.teams);
-    }
 
     public HexedTeamAssigner(final HexedPluginReloaded hexed, final TeamAssigner parent) {
         this.hexed = hexed;
@@ -30,18 +18,16 @@ final class HexedTeamAssigner implements TeamAssigner {
 
     @Override
     public Team assign(final Player player, final Iterable<Player> players) {
-        final var used = Seq.with(players).map(Player::team).asSet();
-
         if (this.hexed.isEnabled()) {
-            for (final var team : this.teams) {
-                if (!used.contains(team) && this.hexed.getHexedState().isAvailable(team)) {
-                    Collections.shuffle(this.teams);
-                    return team;
-                }
+            final var team = this.hexed.getHexedState0().pollAvailableTeam();
+            if (team != null) {
+                return team;
             }
 
-            Call.infoMessage(
-                    player.con(), "There are currently no empty hex spaces available.\nAssigning into spectator mode.");
+            Call.infoMessage(player.con(), HexedLogic.NO_SPACE_TEXT);
+            this.hexed
+                    .getNetStats()
+                    .record(HexedNetStats.INFO_MESSAGE, player, HexedNetStats.sizeOf(HexedLogic.NO_SPACE_TEXT));
             return Team.derelict;
         } else {
             return this.parent.assign(player, players);
@@ -0,0 +1,39 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import mindustry.game.Team;
+
+/**
+ * A 256-bit set of the teams that can be handed to joining players.
+ */
+final class HexedTeamPool {
+
+    private static final int TEAMS = Team.all.length;
+
+    private final long[] words = new long[TEAMS / Long.SIZE];
+
+    void add(final int id) {
+        this.words[id >>> 6] |= 1L << id;
+    }
+
+    void remove(final int id) {
+        this.words[id >>> 6] &= ~(1L << id);
+    }
+
+    /**
+     * Returns the first team id in the set at or after {@code from}, wrapping around,
+     * or {@code -1} if the set is empty.
+     */
+    int next(final int from) {
+        int word = from >>> 6;
+        long bits = this.words[word] & (-1L << from);
+        for (int i = 0; i <= this.words.length; i++) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            word = (word + 1) % this.words.length;
+            bits = this.words[word];
+        }
+        return -1;
+    }
+}
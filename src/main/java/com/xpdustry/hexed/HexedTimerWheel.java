@@ -0,0 +1,119 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A tick driven hierarchical timer wheel, three levels of 256 slots each.
+ * Scheduling, cancelling and firing a timer are constant time operations.
+ * Must only be used from the game thread.
+ */
+final class HexedTimerWheel {
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    private final @Nullable Timer[] wheel = new Timer[SLOTS * LEVELS];
+    private long tick = 0L;
+    private float accumulator = 0F;
+
+    Timer schedule(final float delay, final Runnable task) {
+        final var timer = new Timer(this, this.tick + Math.max(1L, (long) Math.ceil(delay)), task);
+        this.insert(timer);
+        return timer;
+    }
+
+    void advance(final float delta) {
+        this.accumulator += delta;
+        while (this.accumulator >= 1F) {
+            this.accumulator -= 1F;
+            this.tick();
+        }
+    }
+
+    private void tick() {
+        this.tick++;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((this.tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                this.cascade(level);
+            }
+        }
+        final int slot = (int) (this.tick & SLOT_MASK);
+        // Pops the timers one by one, so a task can safely cancel another timer of the same slot
+        var timer = this.wheel[slot];
+        while (timer != null) {
+            this.wheel[slot] = timer.next;
+            if (timer.next != null) {
+                timer.next.prev = null;
+            }
+            timer.next = null;
+            timer.slot = -1;
+            timer.task.run();
+            timer = this.wheel[slot];
+        }
+    }
+
+    private void cascade(final int level) {
+        final int slot = level * SLOTS + (int) ((this.tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        var timer = this.wheel[slot];
+        this.wheel[slot] = null;
+        while (timer != null) {
+            final var next = timer.next;
+            timer.prev = timer.next = null;
+            this.insert(timer);
+            timer = next;
+        }
+    }
+
+    private void insert(final Timer timer) {
+        int level = 0;
+        while (level < LEVELS - 1
+                && (timer.deadline >>> (SLOT_BITS * (level + 1))) != (this.tick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        // Deadlines beyond the last level are parked in its furthest slot and re-inserted when cascaded
+        final long position = Math.min(
+                timer.deadline >>> (SLOT_BITS * level), (this.tick >>> (SLOT_BITS * level)) + SLOT_MASK);
+        final int slot = level * SLOTS + (int) (position & SLOT_MASK);
+        timer.slot = slot;
+        timer.next = this.wheel[slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        this.wheel[slot] = timer;
+    }
+
+    static final class Timer {
+
+        private final HexedTimerWheel wheel;
+        private final long deadline;
+        private final Runnable task;
+        private int slot = -1;
+        private @Nullable Timer prev = null;
+        private @Nullable Timer next = null;
+
+        private Timer(final HexedTimerWheel wheel, final long deadline, final Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        void cancel() {
+            if (this.slot == -1) {
+                return;
+            }
+            if (this.prev != null) {
+                this.prev.next = this.next;
+            } else {
+                this.wheel.wheel[this.slot] = this.next;
+            }
+            if (this.next != null) {
+                this.next.prev = this.prev;
+            }
+            this.prev = this.next = null;
+            this.slot = -1;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed;
+
+import arc.util.Time;
+import mindustry.Vars;
+import mindustry.game.Team;
+import mindustry.gen.Call;
+import mindustry.gen.Player;
+
+/**
+ * The hex labels and capture indicators of a player, only sent for the hexes around its camera.
+ */
+final class HexedViewport {
+
+    static final float INTERVAL = Time.toSeconds / 2;
+    // In ticks, how long a label outlives the refresh that replaces it, covers a late frame
+    private static final float SLACK = 2F;
+    // In ticks, labels are sent again on the refresh at which they are about to expire
+    private static final float LABEL_DURATION = (6 * INTERVAL) + SLACK;
+    private static final float PROGRESS_DURATION = INTERVAL + SLACK;
+    private static final float MARGIN = 4F * Vars.tilesize;
+    // Used while the client did not report its camera yet
+    private static final float FALLBACK_VIEW = 60F * Vars.tilesize;
+
+    private int generation = 0;
+    private float[] expiries = new float[0];
+    private String[] labels = new String[0];
+    private float refresh;
+
+    HexedViewport(final int id) {
+        this.refresh = Time.time + ((id * 0.618034F) % 1F) * INTERVAL;
+    }
+
+    boolean isRefreshDue() {
+        return Time.time >= this.refresh;
+    }
+
+    void refresh(final HexedStateImpl state, final Player player, final HexedNetStats stats) {
+        this.refresh = Math.max(this.refresh + INTERVAL, Time.time);
+
+        final var hexes = state.getHexes();
+        if (this.generation != state.getGeneration()) {
+            this.generation = state.getGeneration();
+            this.expiries = new float[hexes.size()];
+            this.labels = new String[hexes.size()];
+            for (int i = 0; i < hexes.size(); i++) {
+                this.labels[i] = "#" + hexes.get(i).getIdentifier();
+            }
+        }
+
+        final var con = player.con();
+        final boolean reported = con.viewWidth > 0F && con.viewHeight > 0F;
+        final float cx = reported ? con.viewX : player.x;
+        final float cy = reported ? con.viewY : player.y;
+        final float hw = (reported ? con.viewWidth : FALLBACK_VIEW) / 2F + MARGIN;
+        final float hh = (reported ? con.viewHeight : FALLBACK_VIEW) / 2F + MARGIN;
+        final var team = player.team();
+
+        for (int i = 0; i < hexes.size(); i++) {
+            final var hex = hexes.get(i);
+            final var radius = hex.getRadius();
+            if (Math.abs(hex.getX() - cx) > hw + radius || Math.abs(hex.getY() - cy) > hh + radius) {
+                continue;
+            }
+
+            if (this.expiries[i] <= Time.time + SLACK) {
+                Call.labelReliable(
+                        con,
+                        this.labels[i],
+                        LABEL_DURATION / Time.toSeconds,
+                        hex.getX(),
+                        hex.getY() + (Vars.tilesize / 2F));
+                stats.record(HexedNetStats.LABEL, player, HexedNetStats.sizeOf(this.labels[i]) + (3 * Float.BYTES));
+                this.expiries[i] = Time.time + LABEL_DURATION;
+            }
+
+            if (team.equals(Team.derelict) || team.equals(state.getController(hex))) {
+                continue;
+            }
+            final var progress = Math.round(state.getProgress(hex, team));
+            if (progress > 0) {
+                final var text = "[accent]" + progress + "%";
+                // Lives until the next refresh, so it follows the progress
+                Call.labelReliable(
+                        con, text, PROGRESS_DURATION / Time.toSeconds, hex.getX(), hex.getY() - (Vars.tilesize / 2F));
+                stats.record(HexedNetStats.LABEL, player, HexedNetStats.sizeOf(text) + (3 * Float.BYTES));
+            }
+        }
+    }
+}
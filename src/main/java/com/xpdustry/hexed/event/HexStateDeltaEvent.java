@@ -0,0 +1,145 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed.event;
+
+import com.xpdustry.hexed.model.Hex;
+import java.util.Arrays;
+import mindustry.game.Team;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Every change of the hexes during a capture cycle, posted once per cycle.
+ * {@link HexCaptureEvent} and {@link HexLostEvent} are derived from it.
+ * <p>
+ * The changes are stored in parallel primitive arrays, read them by index. Progress is a ratio, 1 meaning captured.
+ * Instances are immutable.
+ */
+public final class HexStateDeltaEvent {
+
+    private static final int NONE = -1;
+
+    private final Hex[] changeHexes;
+    private final short[] previousControllers;
+    private final short[] currentControllers;
+    private final Hex[] progressHexes;
+    private final short[] progressTeams;
+    private final float[] previousProgress;
+    private final float[] currentProgress;
+
+    private HexStateDeltaEvent(final Builder builder) {
+        this.changeHexes = Arrays.copyOf(builder.changeHexes, builder.changes);
+        this.previousControllers = Arrays.copyOf(builder.previousControllers, builder.changes);
+        this.currentControllers = Arrays.copyOf(builder.currentControllers, builder.changes);
+        this.progressHexes = Arrays.copyOf(builder.progressHexes, builder.progress);
+        this.progressTeams = Arrays.copyOf(builder.progressTeams, builder.progress);
+        this.previousProgress = Arrays.copyOf(builder.previousProgress, builder.progress);
+        this.currentProgress = Arrays.copyOf(builder.currentProgress, builder.progress);
+    }
+
+    /**
+     * Returns the number of hexes whose controller changed.
+     */
+    public int getChangeCount() {
+        return this.changeHexes.length;
+    }
+
+    public Hex getChangeHex(final int index) {
+        return this.changeHexes[index];
+    }
+
+    public @Nullable Team getPreviousController(final int index) {
+        return toTeam(this.previousControllers[index]);
+    }
+
+    public @Nullable Team getCurrentController(final int index) {
+        return toTeam(this.currentControllers[index]);
+    }
+
+    /**
+     * Returns the number of team progress values that changed.
+     */
+    public int getProgressCount() {
+        return this.progressHexes.length;
+    }
+
+    public Hex getProgressHex(final int index) {
+        return this.progressHexes[index];
+    }
+
+    public Team getProgressTeam(final int index) {
+        return Team.all[this.progressTeams[index]];
+    }
+
+    public float getPreviousProgress(final int index) {
+        return this.previousProgress[index];
+    }
+
+    public float getCurrentProgress(final int index) {
+        return this.currentProgress[index];
+    }
+
+    private static @Nullable Team toTeam(final short id) {
+        return id == NONE ? null : Team.all[id];
+    }
+
+    /**
+     * Collects the changes of a cycle. Its arrays are reused from a cycle to the next, only growing when needed.
+     */
+    public static final class Builder {
+
+        private Hex[] changeHexes = new Hex[16];
+        private short[] previousControllers = new short[16];
+        private short[] currentControllers = new short[16];
+        private int changes = 0;
+        private Hex[] progressHexes = new Hex[64];
+        private short[] progressTeams = new short[64];
+        private float[] previousProgress = new float[64];
+        private float[] currentProgress = new float[64];
+        private int progress = 0;
+
+        public Builder addChange(final Hex hex, final @Nullable Team previous, final @Nullable Team current) {
+            if (this.changes == this.changeHexes.length) {
+                final int capacity = this.changes * 2;
+                this.changeHexes = Arrays.copyOf(this.changeHexes, capacity);
+                this.previousControllers = Arrays.copyOf(this.previousControllers, capacity);
+                this.currentControllers = Arrays.copyOf(this.currentControllers, capacity);
+            }
+            this.changeHexes[this.changes] = hex;
+            this.previousControllers[this.changes] = previous == null ? NONE : (short) previous.id;
+            this.currentControllers[this.changes] = current == null ? NONE : (short) current.id;
+            this.changes++;
+            return this;
+        }
+
+        public Builder addProgress(final Hex hex, final Team team, final float previous, final float current) {
+            if (this.progress == this.progressHexes.length) {
+                final int capacity = this.progress * 2;
+                this.progressHexes = Arrays.copyOf(this.progressHexes, capacity);
+                this.progressTeams = Arrays.copyOf(this.progressTeams, capacity);
+                this.previousProgress = Arrays.copyOf(this.previousProgress, capacity);
+                this.currentProgress = Arrays.copyOf(this.currentProgress, capacity);
+            }
+            this.progressHexes[this.progress] = hex;
+            this.progressTeams[this.progress] = (short) team.id;
+            this.previousProgress[this.progress] = previous;
+            this.currentProgress[this.progress] = current;
+            this.progress++;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return this.changes == 0 && this.progress == 0;
+        }
+
+        public HexStateDeltaEvent build() {
+            return new HexStateDeltaEvent(this);
+        }
+
+        /**
+         * Empties the builder, keeping its arrays for the next cycle.
+         */
+        public void clear() {
+            this.changes = 0;
+            this.progress = 0;
+        }
+    }
+}
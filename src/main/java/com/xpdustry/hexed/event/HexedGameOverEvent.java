@@ -4,4 +4,9 @@ package com.xpdustry.hexed.event;
 import java.util.List;
 import mindustry.game.Team;
 
-public record HexedGameOverEvent(List<Team> winners) {}
+public record HexedGameOverEvent(List<Team> winners) {
+
+    public HexedGameOverEvent {
+        winners = List.copyOf(winners);
+    }
+}
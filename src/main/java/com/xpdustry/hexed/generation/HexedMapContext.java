@@ -5,17 +5,35 @@ import com.xpdustry.hexed.HexedCaptureProgress;
 import com.xpdustry.hexed.model.Hex;
 import java.time.Duration;
 import java.util.List;
-import java.util.Objects;
-import mindustry.game.Schematics;
 
-public interface HexedMapContext extends MapContext {
-
-    ImmutableSchematic DEFAULT_BASE_SCHEMATIC = loadDefaultBaseSchematic();
+public interface HexedMapContext extends MapContext, LegacyHexedMapContext {
 
     String HEXED_PRESENCE_FLAG = "xpdustry:hexed-reloaded";
 
     Duration DEFAULT_GAME_DURATION = Duration.ofMinutes(90L);
 
+    String PLACEMENTS_PER_TICK_TAG = HEXED_PRESENCE_FLAG + ":placements-per-tick";
+
+    int DEFAULT_PLACEMENTS_PER_TICK = 1;
+
+    String DERELICT_CONVERSIONS_PER_TICK_TAG = HEXED_PRESENCE_FLAG + ":derelict-conversions-per-tick";
+
+    int DEFAULT_DERELICT_CONVERSIONS_PER_TICK = 100;
+
+    String DERELICT_REMOVALS_PER_TICK_TAG = HEXED_PRESENCE_FLAG + ":derelict-removals-per-tick";
+
+    int DEFAULT_DERELICT_REMOVALS_PER_TICK = 10;
+
+    /**
+     * Maximum number of units per team, 0 or absent for no limit.
+     */
+    String UNIT_CAP_TAG = HEXED_PRESENCE_FLAG + ":unit-cap";
+
+    /**
+     * Maximum number of buildings per team, 0 or absent for no limit.
+     */
+    String BUILDING_CAP_TAG = HEXED_PRESENCE_FLAG + ":building-cap";
+
     List<Hex> getHexes();
 
     void setHexes(final List<Hex> hexes);
@@ -31,12 +49,4 @@ public interface HexedMapContext extends MapContext {
     HexedCaptureProgress getCaptureCalculator();
 
     void setCaptureCalculator(final HexedCaptureProgress calculator);
-
-    private static ImmutableSchematic loadDefaultBaseSchematic() {
-        try (final var stream = SimpleHexedMapContext.class.getResourceAsStream("/com/xpdustry/hexed/default.msch")) {
-            return new ImmutableSchematic(Schematics.read(Objects.requireNonNull(stream)));
-        } catch (final Exception e) {
-            throw new RuntimeException("Failed to load the default base schematic.", e);
-        }
-    }
 }
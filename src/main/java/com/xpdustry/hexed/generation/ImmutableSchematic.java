@@ -18,6 +18,7 @@ public final class ImmutableSchematic {
     private final int height;
     private final SortedSet<String> labels;
     private final Map<String, String> tags;
+    private volatile @Nullable PlacementPlan plan = null;
 
     public ImmutableSchematic(final Schematic schematic) {
         this.tiles = MindustryCollections.immutableList(schematic.tiles).stream()
@@ -64,6 +65,14 @@ public final class ImmutableSchematic {
         return this.tags;
     }
 
+    public PlacementPlan getPlacementPlan() {
+        var plan = this.plan;
+        if (plan == null) {
+            plan = this.plan = new PlacementPlan(this);
+        }
+        return plan;
+    }
+
     public String getName() {
         return this.tags.getOrDefault("name", "unknown");
     }
@@ -75,13 +84,29 @@ public final class ImmutableSchematic {
     public record Tile(int x, int y, Block block, @Nullable Object configuration, Rotation rotation) {
 
         public enum Rotation {
-            RIGHT,
-            TOP,
-            LEFT,
-            BOTTOM;
+            RIGHT(0),
+            TOP(1),
+            LEFT(2),
+            BOTTOM(3);
+
+            private final byte value;
+
+            Rotation(final int value) {
+                this.value = (byte) value;
+            }
 
             static Rotation from(final byte rotation) {
-                return values()[rotation % 4];
+                return switch (rotation % 4) {
+                    case 0 -> RIGHT;
+                    case 1 -> TOP;
+                    case 2 -> LEFT;
+                    default -> BOTTOM;
+                };
+            }
+
+            /** Returns the rotation as sent to the clients. */
+            byte getValue() {
+                return this.value;
             }
         }
     }
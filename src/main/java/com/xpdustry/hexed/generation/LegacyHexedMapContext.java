@@ -0,0 +1,17 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed.generation;
+
+/**
+ * Holds the deprecated constants of {@link HexedMapContext}. They are inherited so existing references keep working,
+ * but being declared here, they are only loaded when accessed, not whenever {@link HexedMapContext} is initialized.
+ */
+public interface LegacyHexedMapContext {
+
+    /**
+     * The default base schematic.
+     *
+     * @deprecated use {@link SchematicLibrary#getDefaultBase()}
+     */
+    @Deprecated(forRemoval = true)
+    ImmutableSchematic DEFAULT_BASE_SCHEMATIC = SchematicLibrary.getDefaultBase();
+}
@@ -0,0 +1,184 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed.generation;
+
+import arc.math.geom.Point2;
+import arc.struct.IntSeq;
+import arc.struct.ObjectMap;
+import java.util.ArrayList;
+import java.util.List;
+import mindustry.Vars;
+import mindustry.game.Team;
+import mindustry.gen.Building;
+import mindustry.gen.Call;
+import mindustry.world.Block;
+import mindustry.world.blocks.storage.CoreBlock;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An {@link ImmutableSchematic} compiled into parallel arrays relative to its core, ready to be placed in the world.
+ * <p>
+ * Unrotated and unconfigured tiles are grouped per block so each group is sent with a single {@code setTileBlocks}
+ * packet, cores, rotated and configured tiles are sent one by one with {@code setTile}.
+ * Placing must be done from the game thread.
+ */
+public final class PlacementPlan {
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    // Relative positions are packed as (dx << 16) | (dy & 0xFFFF)
+    private final int[] singles;
+    private final Block[] singleBlocks;
+    private final byte[] singleRotations;
+    private final Block[] batchBlocks;
+    private final int[][] batches;
+    // Absolute positions of each batch, reused by every placement since the packets are written immediately
+    private final int[][] positions;
+    private final int[] configured;
+    private final Object[] configurations;
+
+    PlacementPlan(final ImmutableSchematic schematic) {
+        final var core = schematic.getTiles().stream()
+                .filter(s -> s.block() instanceof CoreBlock)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "The schematic " + schematic.getName() + " does not contain a core."));
+
+        int minX = 0;
+        int minY = 0;
+        int maxX = 0;
+        int maxY = 0;
+        final IntSeq singles = new IntSeq();
+        final List<ImmutableSchematic.Tile> singleTiles = new ArrayList<>();
+        final ObjectMap<Block, IntSeq> batches = new ObjectMap<>();
+        final IntSeq configured = new IntSeq();
+        final List<Object> configurations = new ArrayList<>();
+
+        for (final var stile : schematic.getTiles()) {
+            final int dx = stile.x() - core.x();
+            final int dy = stile.y() - core.y();
+            final int offset = stile.block().sizeOffset;
+            minX = Math.min(minX, dx + offset);
+            minY = Math.min(minY, dy + offset);
+            maxX = Math.max(maxX, dx + offset + stile.block().size - 1);
+            maxY = Math.max(maxY, dy + offset + stile.block().size - 1);
+
+            final int packed = pack(dx, dy);
+            if (stile.rotation() == ImmutableSchematic.Tile.Rotation.RIGHT
+                    && stile.configuration() == null
+                    && !(stile.block() instanceof CoreBlock)) {
+                batches.get(stile.block(), IntSeq::new).add(packed);
+            } else {
+                singles.add(packed);
+                singleTiles.add(stile);
+            }
+            if (stile.configuration() != null) {
+                configured.add(packed);
+                configurations.add(stile.configuration());
+            }
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.singles = singles.toArray();
+        this.singleBlocks = new Block[singleTiles.size()];
+        this.singleRotations = new byte[singleTiles.size()];
+        for (int i = 0; i < singleTiles.size(); i++) {
+            this.singleBlocks[i] = singleTiles.get(i).block();
+            this.singleRotations[i] = singleTiles.get(i).rotation().getValue();
+        }
+        this.batchBlocks = new Block[batches.size];
+        this.batches = new int[batches.size][];
+        this.positions = new int[batches.size][];
+        int i = 0;
+        for (final var entry : batches) {
+            this.batchBlocks[i] = entry.key;
+            this.batches[i] = entry.value.toArray();
+            this.positions[i++] = new int[entry.value.size];
+        }
+        this.configured = configured.toArray();
+        this.configurations = configurations.toArray();
+    }
+
+    /**
+     * Returns whether the whole schematic fits in the world when its core is placed at the given position.
+     */
+    public boolean fits(final int x, final int y) {
+        return x + this.minX >= 0
+                && y + this.minY >= 0
+                && x + this.maxX < Vars.world.width()
+                && y + this.maxY < Vars.world.height();
+    }
+
+    /**
+     * Returns the number of packets sent by {@link #place(int, int, Team)}.
+     */
+    public int getPacketCount() {
+        return this.singles.length + this.batches.length + this.configured.length;
+    }
+
+    /**
+     * Returns the approximate size of the payloads sent by {@link #place(int, int, Team)}, in bytes.
+     */
+    public int getPacketSize() {
+        // setTile: position, block, team and rotation
+        int size = this.singles.length * 8;
+        for (final var batch : this.batches) {
+            // setTileBlocks: block, team, then the length prefixed positions
+            size += 3 + 2 + (batch.length * Integer.BYTES);
+        }
+        // tileConfig: player, building and the type of the value, the value itself is not counted
+        size += this.configured.length * 9;
+        return size;
+    }
+
+    /**
+     * Places the schematic with its core at the given position.
+     *
+     * @return the placed core, or {@code null} if the schematic does not {@link #fits(int, int) fit}
+     */
+    public @Nullable Building place(final int x, final int y, final Team team) {
+        if (!this.fits(x, y)) {
+            return null;
+        }
+        final var tiles = Vars.world.tiles;
+
+        for (int i = 0; i < this.singles.length; i++) {
+            final var tile = tiles.getn(x + unpackX(this.singles[i]), y + unpackY(this.singles[i]));
+            Call.setTile(tile, this.singleBlocks[i], team, this.singleRotations[i]);
+        }
+
+        for (int i = 0; i < this.batches.length; i++) {
+            final var relative = this.batches[i];
+            final var positions = this.positions[i];
+            for (int j = 0; j < relative.length; j++) {
+                positions[j] = Point2.pack(x + unpackX(relative[j]), y + unpackY(relative[j]));
+            }
+            Call.setTileBlocks(this.batchBlocks[i], team, positions);
+        }
+
+        for (int i = 0; i < this.configured.length; i++) {
+            final var tile = tiles.getn(x + unpackX(this.configured[i]), y + unpackY(this.configured[i]));
+            if (tile.build != null) {
+                tile.build.configureAny(this.configurations[i]);
+            }
+        }
+
+        return tiles.getn(x, y).build;
+    }
+
+    private static int pack(final int x, final int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    private static int unpackX(final int packed) {
+        return packed >> 16;
+    }
+
+    private static int unpackY(final int packed) {
+        return (short) packed;
+    }
+}
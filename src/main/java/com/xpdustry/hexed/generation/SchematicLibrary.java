@@ -0,0 +1,42 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package com.xpdustry.hexed.generation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import mindustry.game.Schematics;
+
+/**
+ * Loads the {@code .msch} schematics bundled under {@code /com/xpdustry/hexed/} on first use and caches them,
+ * along with their compiled {@link PlacementPlan}.
+ */
+public final class SchematicLibrary {
+
+    public static final String DEFAULT_BASE = "default";
+
+    private static final Map<String, ImmutableSchematic> SCHEMATICS = new ConcurrentHashMap<>();
+
+    private SchematicLibrary() {}
+
+    public static ImmutableSchematic get(final String name) {
+        return SCHEMATICS.computeIfAbsent(name, SchematicLibrary::load);
+    }
+
+    public static ImmutableSchematic getDefaultBase() {
+        return get(DEFAULT_BASE);
+    }
+
+    private static ImmutableSchematic load(final String name) {
+        try (final var stream = SchematicLibrary.class.getResourceAsStream("/com/xpdustry/hexed/" + name + ".msch")) {
+            if (stream == null) {
+                throw new IllegalArgumentException("No schematic named " + name + " in the library.");
+            }
+            final var schematic = new ImmutableSchematic(Schematics.read(stream));
+            schematic.getPlacementPlan();
+            return schematic;
+        } catch (final IllegalArgumentException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException("Failed to load the schematic " + name + ".", e);
+        }
+    }
+}
@@ -9,13 +9,14 @@ import java.util.List;
 import mindustry.content.Items;
 import mindustry.game.Gamemode;
 import mindustry.type.ItemStack;
+import org.jspecify.annotations.Nullable;
 
 @SuppressWarnings("this-escape")
 public class SimpleHexedMapContext extends SimpleMapContext implements HexedMapContext {
 
     private List<Hex> hexes = Collections.emptyList();
     private Duration duration = DEFAULT_GAME_DURATION;
-    private ImmutableSchematic schematic = DEFAULT_BASE_SCHEMATIC;
+    private @Nullable ImmutableSchematic schematic = null;
     private HexedCaptureProgress calculator = HexedCaptureProgress.anuke();
 
     {
@@ -69,7 +70,8 @@ public class SimpleHexedMapContext extends SimpleMapContext implements HexedMapC
 
     @Override
     public ImmutableSchematic getBaseSchematic() {
-        return this.schematic;
+        // Only loaded when no other schematic is set
+        return this.schematic != null ? this.schematic : SchematicLibrary.getDefaultBase();
     }
 
     @Override